@@ -2,8 +2,10 @@ package study.querydsl;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcTransactionManagerAutoConfiguration;
 
-@SpringBootApplication
+//리액티브 검색은 읽기만 한다. R2DBC 트랜잭션 매니저가 생기면 @Transactional 이 JPA 트랜잭션 매니저를 하나로 고르지 못한다.
+@SpringBootApplication(exclude = R2dbcTransactionManagerAutoConfiguration.class)
 public class QuerydslApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,15 @@
+package study.querydsl;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * @Scheduled 작업(OutboxRelay, MemberCountEstimator, MemberTeamViewMaintainer, MemberArchiveJob)을 켠다.
+ * 테스트에서는 scheduling.enabled=false 로 끄고, 필요한 작업은 테스트가 직접 호출한다.
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "scheduling.enabled", havingValue = "true", matchIfMissing = true)
+public class SchedulingConfig {
+}
@@ -0,0 +1,24 @@
+package study.querydsl.archive;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.transaction.PlatformTransactionManager;
+import study.querydsl.outbox.OutboxRecorder;
+
+import javax.persistence.EntityManager;
+
+@Configuration
+@ConditionalOnProperty(name = "member.archive.enabled", havingValue = "true")
+@EnableConfigurationProperties(ArchiveProperties.class)
+public class ArchiveConfig {
+
+    @Bean
+    @Lazy(false) //@Scheduled 는 lazy-initialization 에서도 돌아야 한다.
+    public MemberArchiveJob memberArchiveJob(ArchiveProperties properties, EntityManager em,
+                                             PlatformTransactionManager txManager, OutboxRecorder outboxRecorder) {
+        return new MemberArchiveJob(properties, em, txManager, outboxRecorder);
+    }
+}
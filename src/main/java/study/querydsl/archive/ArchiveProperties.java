@@ -0,0 +1,21 @@
+package study.querydsl.archive;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 보관 정책: 나이 범위(ageGoe ~ ageLoe)에 드는 회원을 member_archive 로 옮긴다.
+ * 둘 다 비우면 전체가 대상이 되므로 하나는 반드시 지정해야 한다.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "member.archive")
+public class ArchiveProperties {
+
+    private boolean enabled = false;
+    private Integer ageGoe;
+    private Integer ageLoe;
+    private int chunkSize = 500; //청크 하나 = 트랜잭션 하나. 작을수록 행 잠금이 짧다.
+    private long pauseMs = 50; //청크 사이에 쉬어서 같은 행을 기다리는 쓰기 트랜잭션이 먼저 지나가도록
+}
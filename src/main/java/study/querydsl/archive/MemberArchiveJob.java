@@ -0,0 +1,118 @@
+package study.querydsl.archive;
+
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.domain.ArchivedMember;
+import study.querydsl.domain.ChangeType;
+import study.querydsl.domain.Member;
+import study.querydsl.outbox.OutboxRecorder;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static study.querydsl.domain.QMember.member;
+
+/**
+ * 보관 정책에 드는 회원을 member -> member_archive 로 옮긴다.
+ * - id 순서로 chunkSize 건씩, 청크마다 별도 트랜잭션에서 읽기(행 잠금) -> archive insert -> member 벌크 delete
+ * - 잠그는 행은 청크 안의 행뿐이고 청크 사이에 pauseMs 쉬므로 다른 쓰기를 오래 막지 않는다.
+ * - 벌크 delete 라 Hibernate 이벤트가 없으므로 아웃박스에 BULK_DELETE 를 남긴다. (뷰/카운트 추정이 따라온다)
+ */
+@Slf4j
+public class MemberArchiveJob {
+
+    private final ArchiveProperties properties;
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate transactionTemplate;
+    private final OutboxRecorder outboxRecorder;
+
+    public MemberArchiveJob(ArchiveProperties properties, EntityManager em,
+                            PlatformTransactionManager txManager, OutboxRecorder outboxRecorder) {
+        if (properties.getAgeGoe() == null && properties.getAgeLoe() == null) {
+            throw new IllegalArgumentException("member.archive.age-goe 또는 member.archive.age-loe 를 지정해야 합니다.");
+        }
+        this.properties = properties;
+        this.em = em;
+        this.queryFactory = new JPAQueryFactory(em);
+        this.transactionTemplate = new TransactionTemplate(txManager);
+        this.outboxRecorder = outboxRecorder;
+    }
+
+    @Scheduled(fixedDelayString = "${member.archive.interval-ms:3600000}", initialDelayString = "${member.archive.initial-delay-ms:60000}")
+    public void scheduledArchive() {
+        archive();
+    }
+
+    /**
+     * @return 옮긴 회원 수
+     */
+    public long archive() {
+        long start = System.nanoTime();
+        long lastId = Long.MIN_VALUE;
+        long moved = 0;
+        while (true) {
+            long after = lastId;
+            List<Long> ids = transactionTemplate.execute(status -> moveChunk(after));
+            moved += ids.size();
+            if (ids.size() < properties.getChunkSize() || !pause()) {
+                break;
+            }
+            lastId = ids.get(ids.size() - 1);
+        }
+        log.info("member 보관 moved={} {}ms", moved, (System.nanoTime() - start) / 1_000_000);
+        return moved;
+    }
+
+    private List<Long> moveChunk(long after) {
+        List<Member> cold = queryFactory
+                .selectFrom(member)
+                .where(member.id.gt(after), policy())
+                .orderBy(member.id.asc())
+                .limit(properties.getChunkSize())
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE) //옮기는 사이에 수정되어 예전 값이 보관되지 않도록
+                .fetch();
+        if (cold.isEmpty()) {
+            return List.of();
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        for (Member m : cold) {
+            Long teamId = m.getTeam() == null ? null : m.getTeam().getId(); //프록시의 id 는 초기화 없이 읽힌다.
+            em.persist(new ArchivedMember(m.getId(), m.getUsername(), m.getAge(), teamId, now));
+        }
+        em.flush();
+
+        List<Long> ids = cold.stream().map(Member::getId).collect(Collectors.toList());
+        BooleanExpression range = member.id.between(ids.get(0), ids.get(ids.size() - 1)).and(policy());
+        long deleted = queryFactory
+                .delete(member)
+                .where(member.id.in(ids))
+                .execute();
+        outboxRecorder.recordBulk(em, "Member", ChangeType.BULK_DELETE, range, deleted);
+        return ids;
+    }
+
+    private BooleanExpression policy() {
+        BooleanExpression goe = properties.getAgeGoe() == null ? null : member.age.goe(properties.getAgeGoe());
+        BooleanExpression loe = properties.getAgeLoe() == null ? null : member.age.loe(properties.getAgeLoe());
+        return goe == null ? loe : goe.and(loe);
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(properties.getPauseMs());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); //종료 중 -> 남은 청크는 다음 실행에서
+            return false;
+        }
+    }
+}
@@ -1,26 +1,39 @@
 package study.querydsl.controller;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 import study.querydsl.domain.Member;
 import study.querydsl.domain.Team;
 
-import javax.annotation.PostConstruct;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import java.util.concurrent.CompletableFuture;
 
 @Profile("local") //Test에서 profile을 test로 해뒀기 때문에 InitMember가 실행되지 않는다!
+@ConditionalOnProperty(name = "member.seed.enabled", havingValue = "true") //opt-in. fast 프로필은 끈다.
 @Component
 @RequiredArgsConstructor
+@Slf4j
 public class InitMember { //더미 데이터 추가하는 컨트롤러
 
     private final InitMemberService initMemberService;
 
-    @PostConstruct //아래에 더미 데이터를 여기서 넣지 않는 이유! -> Spring LifeCycle에 의해 여기에 넣으면 @Transactional과 @PostConstruct를 동시에 사용할 수 없다.
+    //기동이 끝난 뒤 별도 스레드에서 넣는다. -> 더미 데이터 때문에 기동(readiness)이 늦어지지 않는다.
+    //@PostConstruct에서 넣지 않는 이유! -> Spring LifeCycle에 의해 @Transactional과 @PostConstruct를 동시에 사용할 수 없다.
+    @EventListener(ApplicationReadyEvent.class)
     public void init() {
-        initMemberService.init();
+        CompletableFuture.runAsync(initMemberService::init)
+                .whenComplete((ignored, e) -> {
+                    if (e != null) {
+                        log.warn("더미 데이터 추가 실패", e);
+                    }
+                });
     }
 
     @Component
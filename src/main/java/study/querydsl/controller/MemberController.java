@@ -1,22 +1,87 @@
 package study.querydsl.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.dto.MemberFacet;
+import study.querydsl.dto.MemberFacetResult;
 import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberSearchPage;
 import study.querydsl.dto.MemberTeamDto;
-import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.InvalidFieldException;
+import study.querydsl.repository.InvalidSortException;
+import study.querydsl.repository.MemberCountEstimator;
+import study.querydsl.repository.MemberField;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.service.MemberSearchService;
 
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @RestController
 @RequiredArgsConstructor
 public class MemberController {
 
-    private final MemberJpaRepository memberJpaRepository;
+    private final MemberRepository memberRepository;
+    private final MemberCountEstimator memberCountEstimator;
+    private final MemberSearchService memberSearchService;
 
     @GetMapping("/v1/members")
     public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condition) {
-        return memberJpaRepository.search(condition);
+        return memberSearchService.search(condition); //같은 조건 동시 요청은 쿼리 한 번으로 합친다.
+    }
+
+    //ex) /v1/members?fields=username,age&ageGoe=20 -> [{"username":"member21","age":21}, ...]
+    @GetMapping(value = "/v1/members", params = "fields")
+    public List<Map<String, Object>> searchMemberFields(MemberSearchCondition condition, @RequestParam List<String> fields) {
+        List<MemberField> selected = fields.stream()
+                .map(String::trim)
+                .map(MemberField::from)
+                .collect(Collectors.toList());
+        return memberRepository.search(condition, selected);
+    }
+
+    //ex) /v1/members?source=view&teamName=teamA -> 조인 없이 member_team_view 에서 (재구축 중이면 원본 조인으로)
+    @GetMapping(value = "/v1/members", params = "source=view")
+    public List<MemberTeamDto> searchMemberView(MemberSearchCondition condition) {
+        return memberRepository.searchView(condition);
+    }
+
+    //ex) /v2/members?teamName=teamA&sort=age,desc&sort=username&page=0&size=20
+    @GetMapping("/v2/members")
+    public List<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable) {
+        return memberRepository.search(condition, pageable);
+    }
+
+    //ex) /v2/members/page?ageGoe=20&page=0&size=20 -> total.display = "about 1.2M"
+    @GetMapping("/v2/members/page")
+    public MemberSearchPage searchMemberPage(MemberSearchCondition condition, Pageable pageable) {
+        return new MemberSearchPage(memberRepository.search(condition, pageable), memberCountEstimator.count(condition));
+    }
+
+    //ex) /v1/members/facets?ageGoe=20&facets=TEAM,AGE_DECADE&size=20
+    @GetMapping("/v1/members/facets")
+    public MemberFacetResult searchMemberWithFacets(MemberSearchCondition condition, Pageable pageable,
+                                                    @RequestParam(defaultValue = "TEAM,AGE_DECADE") MemberFacet[] facets) {
+        return memberRepository.searchWithFacets(condition, pageable, facets);
+    }
+
+    @ExceptionHandler(QueryTimeoutException.class) //요청 시간 예산 초과 또는 취소 (Deadline)
+    @ResponseStatus(HttpStatus.GATEWAY_TIMEOUT)
+    public String timeout(QueryTimeoutException e) {
+        return e.getMessage();
+    }
+
+    @ExceptionHandler({InvalidSortException.class, InvalidFieldException.class}) //화이트리스트에 없는 정렬/선택 필드만 (그 밖의 IAE 는 500)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public String badRequest(RuntimeException e) {
+        return e.getMessage();
     }
 }
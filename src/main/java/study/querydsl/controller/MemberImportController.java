@@ -0,0 +1,43 @@
+package study.querydsl.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import study.querydsl.dto.MemberImportProgress;
+import study.querydsl.service.MemberImportService;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.util.UUID;
+
+@RestController
+@RequiredArgsConstructor
+public class MemberImportController {
+
+    private final MemberImportService memberImportService;
+
+    /**
+     * 요청 본문을 스트리밍으로 읽어서 저장한다. (본문 전체를 메모리에 올리지 않는다)
+     * ex) curl -X POST -H 'Content-Type: text/csv' --data-binary @members.csv 'localhost:8080/v1/members/import?importId=batch-1'
+     * 실패하면 같은 importId로 다시 보내면 커밋된 줄 다음부터 이어서 처리한다.
+     */
+    @PostMapping(value = "/v1/members/import", consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE})
+    public MemberImportProgress importMembers(@RequestParam(required = false) String importId,
+                                              @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                              HttpServletRequest request) throws IOException {
+        MemberImportService.Format format = MediaType.APPLICATION_NDJSON.isCompatibleWith(contentType)
+                ? MemberImportService.Format.NDJSON
+                : MemberImportService.Format.CSV;
+        String id = importId == null ? UUID.randomUUID().toString() : importId;
+
+        return memberImportService.importMembers(id, format, request.getInputStream());
+    }
+
+    //진행 상황 조회 (import 요청이 처리되는 동안 다른 요청으로 확인)
+    @GetMapping("/v1/members/import/{importId}")
+    public ResponseEntity<MemberImportProgress> importProgress(@PathVariable String importId) {
+        return ResponseEntity.of(memberImportService.progress(importId));
+    }
+}
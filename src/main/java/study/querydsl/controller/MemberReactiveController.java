@@ -0,0 +1,24 @@
+package study.querydsl.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberReactiveRepository;
+
+@RestController
+@RequiredArgsConstructor
+public class MemberReactiveController {
+
+    private final MemberReactiveRepository memberReactiveRepository;
+
+    //ex) /reactive/v1/members?teamName=teamA
+    //Accept: application/x-ndjson 이면 한 건씩 흘려보내고(클라이언트가 느리면 DB 에서 덜 당긴다), application/json 이면 모아서 배열로 응답한다.
+    @GetMapping(value = "/reactive/v1/members", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public Flux<MemberTeamDto> searchMember(MemberSearchCondition condition) {
+        return memberReactiveRepository.search(condition);
+    }
+}
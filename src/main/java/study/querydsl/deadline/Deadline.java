@@ -0,0 +1,95 @@
+package study.querydsl.deadline;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 요청 하나의 시간 예산. 요청 쓰레드의 ThreadLocal 에 두고 저장소가 쿼리를 만들 때마다 남은 시간을 쿼리 타임아웃으로 건다.
+ * cancel() 은 다른 쓰레드에서 불러도 되고, 지금 실행 중인 statement 를 취소한다. (Session.cancelQuery)
+ */
+@Slf4j
+public final class Deadline {
+
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    private final long deadlineNanos;
+    private volatile Session session; //쿼리를 실행 중인 세션 (요청 쓰레드에 묶인 EntityManager 가 있을 때만)
+    private volatile boolean cancelled;
+
+    private Deadline(long budgetMillis) {
+        this.deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+    }
+
+    public static Deadline open(long budgetMillis) {
+        Deadline deadline = new Deadline(budgetMillis);
+        CURRENT.set(deadline);
+        return deadline;
+    }
+
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    /**
+     * 현재 요청에 예산이 있으면 query 에 타임아웃 힌트를 건다. JPAQueryFactory 를 거치지 않는 JPQL/native 쿼리용
+     */
+    public static <Q extends Query> Q applyTo(Q query, EntityManager em) {
+        Deadline deadline = current();
+        if (deadline != null) {
+            query.setHint(QueryHints.HINT_TIMEOUT, deadline.queryTimeoutSeconds(em));
+        }
+        return query;
+    }
+
+    public long remainingMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * 남은 시간을 JDBC 쿼리 타임아웃(초, 올림)으로 바꾼다. 이미 지났으면 쿼리를 보내지 않고 예외를 던진다.
+     * javax.persistence.query.timeout(ms)은 Hibernate 가 초로 반올림해서 500ms 미만이 0(=무제한)이 되므로 org.hibernate.timeout 을 쓴다.
+     */
+    public int queryTimeoutSeconds(EntityManager em) {
+        long remaining = remainingMillis();
+        if (cancelled || remaining <= 0) {
+            throw new QueryTimeoutException("요청 시간 예산을 모두 썼습니다. remaining=" + remaining + "ms");
+        }
+        track(em);
+        return (int) Math.max(1, (remaining + 999) / 1000);
+    }
+
+    public void cancel() {
+        cancelled = true;
+        Session running = session;
+        if (running == null || !running.isOpen()) {
+            return;
+        }
+        try {
+            running.cancelQuery();
+        } catch (RuntimeException e) {
+            log.debug("쿼리 취소 실패 (이미 끝났을 수 있다)", e);
+        }
+    }
+
+    //트랜잭션/OSIV 로 쓰레드에 묶인 세션만 잡는다. 묶이지 않은 공유 EntityManager 는 호출마다 세션이 달라 취소할 대상이 없다.
+    private void track(EntityManager em) {
+        if (TransactionSynchronizationManager.hasResource(em.getEntityManagerFactory())) {
+            session = em.unwrap(Session.class);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package study.querydsl.deadline;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+@Configuration
+@EnableConfigurationProperties(DeadlineProperties.class)
+public class DeadlineConfig implements WebMvcConfigurer, DisposableBean {
+
+    private final DeadlineProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final ScheduledExecutorService canceller = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "deadline-canceller");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public DeadlineConfig(DeadlineProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        registry.addInterceptor(new DeadlineInterceptor(properties, canceller,
+                        Counter.builder("member.query.timeouts").register(meterRegistry),
+                        Counter.builder("member.query.cancellations").register(meterRegistry)))
+                .addPathPatterns("/v1/members/**", "/v2/members/**")
+                .excludePathPatterns("/v1/members/import/**"); //대량 적재는 자체 청크/체크포인트로 관리
+    }
+
+    @Override
+    public void destroy() {
+        canceller.shutdownNow();
+    }
+}
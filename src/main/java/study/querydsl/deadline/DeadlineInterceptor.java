@@ -0,0 +1,76 @@
+package study.querydsl.deadline;
+
+import io.micrometer.core.instrument.Counter;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 요청마다 Deadline 을 연다. 예산은 X-Request-Deadline-Ms 헤더(ms), 없으면 member.deadline.default-ms
+ * 예산이 끝나면 실행 중인 쿼리를 취소한다. (JDBC 쿼리 타임아웃을 무시하는 드라이버/커넥션 대기 대비)
+ *
+ * 서블릿(블로킹) 스택에서는 클라이언트가 연결을 끊어도 응답을 쓰기 전까지 알 수 없다.
+ * 그래서 연결이 끊긴 요청도 늦어도 자기 예산이 끝날 때 취소된다. 클라이언트는 헤더로 예산을 짧게 줄 수 있다.
+ */
+public class DeadlineInterceptor implements HandlerInterceptor {
+
+    public static final String DEADLINE_HEADER = "X-Request-Deadline-Ms";
+    private static final String CANCEL_TASK = DeadlineInterceptor.class.getName() + ".cancelTask";
+
+    private final DeadlineProperties properties;
+    private final ScheduledExecutorService canceller;
+    private final Counter timeouts;
+    private final Counter cancellations;
+
+    public DeadlineInterceptor(DeadlineProperties properties, ScheduledExecutorService canceller,
+                               Counter timeouts, Counter cancellations) {
+        this.properties = properties;
+        this.canceller = canceller;
+        this.timeouts = timeouts;
+        this.cancellations = cancellations;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        long budget = budgetMillis(request.getHeader(DEADLINE_HEADER));
+        Deadline deadline = Deadline.open(budget);
+        request.setAttribute(CANCEL_TASK, canceller.schedule(deadline::cancel, budget, TimeUnit.MILLISECONDS));
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Deadline deadline = Deadline.current();
+        Deadline.clear();
+        ScheduledFuture<?> cancelTask = (ScheduledFuture<?>) request.getAttribute(CANCEL_TASK);
+        if (cancelTask != null) {
+            cancelTask.cancel(false);
+        }
+        if (deadline == null) {
+            return;
+        }
+        if (deadline.isCancelled()) {
+            cancellations.increment();
+        }
+        if (response.getStatus() == HttpStatus.GATEWAY_TIMEOUT.value()) {
+            timeouts.increment();
+        }
+    }
+
+    //잘못된 헤더는 무시하고 기본값, 너무 크면 max 로 자른다.
+    long budgetMillis(String header) {
+        long budget = properties.getDefaultMs();
+        if (header != null) {
+            try {
+                budget = Long.parseLong(header.trim());
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return Math.max(1, Math.min(budget, properties.getMaxMs()));
+    }
+}
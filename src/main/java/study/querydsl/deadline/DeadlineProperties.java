@@ -0,0 +1,15 @@
+package study.querydsl.deadline;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "member.deadline")
+public class DeadlineProperties {
+
+    private boolean enabled = true;
+    private long defaultMs = 10_000; //헤더가 없을 때
+    private long maxMs = 30_000; //헤더로도 이보다 길게 줄 수 없다.
+}
@@ -0,0 +1,31 @@
+package study.querydsl.deadline;
+
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.jpa.QueryHints;
+
+import javax.persistence.EntityManager;
+
+/**
+ * select/selectFrom/from 으로 만드는 모든 쿼리에 현재 요청의 남은 시간을 쿼리 타임아웃으로 건다.
+ * 요청 밖(스케줄러, 배치)에서는 JPAQueryFactory 와 같다.
+ */
+public class DeadlineQueryFactory extends JPAQueryFactory {
+
+    private final EntityManager em;
+
+    public DeadlineQueryFactory(EntityManager em) {
+        super(em);
+        this.em = em;
+    }
+
+    @Override
+    public JPAQuery<?> query() {
+        JPAQuery<?> query = super.query();
+        Deadline deadline = Deadline.current();
+        if (deadline != null) {
+            query.setHint(QueryHints.HINT_TIMEOUT, deadline.queryTimeoutSeconds(em));
+        }
+        return query;
+    }
+}
@@ -0,0 +1,44 @@
+package study.querydsl.domain;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import java.time.LocalDateTime;
+
+/**
+ * 보관(cold) 계층으로 옮긴 회원 (MemberArchiveJob)
+ * member 에서는 지워지고 여기에만 남는다. 팀은 FK 없이 id 만 갖고, 검색할 때 team 과 id 로 조인한다.
+ */
+@Entity
+@Table(name = "member_archive", indexes = {
+        @Index(name = "idx_member_archive_username", columnList = "username"),
+        @Index(name = "idx_member_archive_age", columnList = "age"),
+        @Index(name = "idx_member_archive_team_id", columnList = "teamId")
+})
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString
+public class ArchivedMember {
+
+    @Id
+    private Long memberId; //member.member_id 그대로 (생성하지 않음)
+
+    private String username;
+    private int age;
+    private Long teamId;
+    private LocalDateTime archivedAt;
+
+    public ArchivedMember(Long memberId, String username, int age, Long teamId, LocalDateTime archivedAt) {
+        this.memberId = memberId;
+        this.username = username;
+        this.age = age;
+        this.teamId = teamId;
+        this.archivedAt = archivedAt;
+    }
+}
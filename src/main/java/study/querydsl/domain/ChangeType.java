@@ -0,0 +1,6 @@
+package study.querydsl.domain;
+
+public enum ChangeType {
+    INSERT, UPDATE, DELETE,
+    BULK_UPDATE, BULK_DELETE //벌크 연산은 행 단위가 아니라 where 조건(범위) 단위로 기록한다.
+}
@@ -1,6 +1,7 @@
 package study.querydsl.domain;
 
 import lombok.*;
+import org.hibernate.Hibernate;
 
 import javax.persistence.*;
 
@@ -8,8 +9,13 @@ import javax.persistence.*;
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "username", "age"}) //연관관계 필드를 적으면 무한 호출하는 상황이 생길 수 있다.
+@Table(indexes = { //정렬 + limit(top-N) 쿼리가 인덱스를 탈 수 있도록 (MemberSortKey 참고)
+        @Index(name = "idx_member_username", columnList = "username"),
+        @Index(name = "idx_member_age", columnList = "age")})
 public class Member {
-    @Id @GeneratedValue
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "member_seq_generator")
+    @SequenceGenerator(name = "member_seq_generator", sequenceName = "member_seq", allocationSize = 50) //대량 insert 시 시퀀스 호출을 50건에 한 번으로
     @Column(name = "member_id")
     private Long id;
 
@@ -17,6 +23,9 @@ public class Member {
 
     private int age;
 
+    @Version //동시에 나이/팀을 바꿔도 나중 커밋이 앞의 변경을 덮어쓰지 않도록 (MemberUpdateService 참고)
+    private Long version;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "team_id")
     private Team team;
@@ -37,8 +46,18 @@ public class Member {
         }
     }
 
+    /**
+     * 연관관계의 주인은 Member.team 이므로 DB에는 this.team만 반영된다.
+     * Team.members는 메모리 상태를 맞추기 위한 것이라, 아직 로딩되지 않은 팀(프록시)이나 컬렉션을 굳이 초기화하지 않는다.
+     * 팀의 회원 목록/수가 필요하면 MemberRepository.findByTeamId, countByTeamId를 사용한다.
+     */
     public void changeTeam(Team team) {
+        if (this.team != null && Hibernate.isInitialized(this.team) && Hibernate.isInitialized(this.team.getMembers())) {
+            this.team.getMembers().remove(this); //remove()는 컬렉션을 초기화하므로 이미 로딩된 경우에만
+        }
         this.team = team;
-        team.getMembers().add(this);
+        if (Hibernate.isInitialized(team)) {
+            team.getMembers().add(this); //mappedBy 쪽 bag의 add()는 로딩 전이면 큐에만 쌓아두고 초기화하지 않는다.
+        }
     }
 }
\ No newline at end of file
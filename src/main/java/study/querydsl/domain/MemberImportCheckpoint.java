@@ -0,0 +1,35 @@
+package study.querydsl.domain;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import java.time.LocalDateTime;
+
+/**
+ * 대량 import 재시작 지점
+ * 청크를 커밋할 때 같은 트랜잭션에서 갱신되므로, 재시작하면 processedLines 다음 줄부터 이어서 넣으면 된다.
+ */
+@Entity
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class MemberImportCheckpoint {
+
+    @Id
+    private String importId;
+
+    private long processedLines; //저장 + 거절된 줄 수 (헤더 제외)
+
+    private LocalDateTime updatedAt;
+
+    public MemberImportCheckpoint(String importId) {
+        this.importId = importId;
+    }
+
+    public void advance(long processedLines) {
+        this.processedLines = processedLines;
+        this.updatedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,56 @@
+package study.querydsl.domain;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import java.util.Objects;
+
+/**
+ * member + team 조인 결과(MemberTeamDto)를 펼쳐 둔 테이블
+ * 원본이 아니라 아웃박스 이벤트로 따라가는 사본이라 잠깐 늦을 수 있다. (MemberTeamViewMaintainer)
+ */
+@Entity
+@Table(name = "member_team_view", indexes = {
+        @Index(name = "idx_member_team_view_username", columnList = "username"),
+        @Index(name = "idx_member_team_view_team_name", columnList = "teamName"),
+        @Index(name = "idx_member_team_view_team_id", columnList = "teamId"),
+        @Index(name = "idx_member_team_view_age", columnList = "age")
+})
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString
+public class MemberTeamView {
+
+    @Id
+    private Long memberId; //member.member_id 그대로 (생성하지 않음)
+
+    private String username;
+    private int age;
+    private Long teamId;
+    private String teamName;
+
+    public MemberTeamView(Long memberId, String username, int age, Long teamId, String teamName) {
+        this.memberId = memberId;
+        copy(username, age, teamId, teamName);
+    }
+
+    public void copy(String username, int age, Long teamId, String teamName) {
+        this.username = username;
+        this.age = age;
+        this.teamId = teamId;
+        this.teamName = teamName;
+    }
+
+    public boolean sameAs(String username, int age, Long teamId, String teamName) {
+        return Objects.equals(this.username, username)
+                && this.age == age
+                && Objects.equals(this.teamId, teamId)
+                && Objects.equals(this.teamName, teamName);
+    }
+}
@@ -0,0 +1,37 @@
+package study.querydsl.domain;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 트랜잭셔널 아웃박스 - Member/Team 변경 내역을 같은 트랜잭션 안에서 기록해두는 테이블
+ * 저장은 OutboxRecorder가 JDBC batch로 직접 insert 하고, OutboxRelay가 읽어서 발행 후 삭제한다.
+ */
+@Entity
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString(of = {"id", "aggregateType", "aggregateId", "changeType"})
+@Table(name = "outbox_event")
+public class OutboxEvent {
+
+    @Id @GeneratedValue(strategy = GenerationType.IDENTITY) //JDBC batch insert에서 id를 직접 채번하지 않기 위해 IDENTITY 사용
+    @Column(name = "outbox_event_id")
+    private Long id;
+
+    private String aggregateType;
+
+    private Long aggregateId; //벌크 연산이면 null
+
+    @Enumerated(EnumType.STRING)
+    private ChangeType changeType;
+
+    @Column(length = 4000)
+    private String payload; //변경된 필드만 담은 JSON
+
+    private LocalDateTime createdAt;
+}
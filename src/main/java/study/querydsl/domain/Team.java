@@ -1,6 +1,9 @@
 package study.querydsl.domain;
 
 import lombok.*;
+import org.hibernate.annotations.LazyCollection;
+import org.hibernate.annotations.LazyCollectionOption;
+import org.hibernate.annotations.OptimisticLock;
 
 import javax.persistence.*;
 import java.util.ArrayList;
@@ -10,6 +13,7 @@ import java.util.List;
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "name"})
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_team_name", columnNames = "name")) //import 등에서 이름으로 찾거나 만들 때 중복 생성 방지
 public class Team {
 
     @Id @GeneratedValue
@@ -18,7 +22,12 @@ public class Team {
 
     private String name;
 
+    @Version
+    private Long version;
+
     @OneToMany(mappedBy = "team")
+    @OptimisticLock(excluded = true) //회원이 팀에 들어오고 나갈 때마다 Team 버전이 올라가면 같은 팀 변경끼리 모두 충돌한다.
+    @LazyCollection(LazyCollectionOption.EXTRA) //size(), contains() 등은 컬렉션 전체를 읽지 않고 쿼리로 처리한다.
     List<Member> members = new ArrayList<>();
 
     public Team(String name) {
@@ -0,0 +1,33 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+
+@Data
+public class CountEstimate {
+
+    private final long count;
+    private final boolean exact;
+    private final long errorBound; //approximate 일 때 실제 값은 count ± errorBound 안에 있다.
+
+    public static CountEstimate exact(long count) {
+        return new CountEstimate(count, true, 0);
+    }
+
+    public static CountEstimate approximate(long count, long errorBound) {
+        return new CountEstimate(count, false, errorBound);
+    }
+
+    //화면 표시용 ex) "1,234" / "about 1.2M"
+    public String getDisplay() {
+        if (exact) {
+            return String.format("%,d", count);
+        }
+        if (count >= 1_000_000) {
+            return String.format("about %.1fM", count / 1_000_000.0);
+        }
+        if (count >= 1_000) {
+            return String.format("about %.1fK", count / 1_000.0);
+        }
+        return "about " + count;
+    }
+}
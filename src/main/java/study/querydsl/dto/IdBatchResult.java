@@ -0,0 +1,32 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * id 목록 일괄 조회 결과
+ * found 와 missing 모두 입력 id 순서를 따른다. (중복 id 는 처음 한 번만)
+ */
+@Data
+public class IdBatchResult<T> {
+
+    private final List<T> found;
+    private final List<Long> missing;
+
+    public static <T> IdBatchResult<T> of(List<Long> ids, Map<Long, T> byId) {
+        List<T> found = new ArrayList<>(ids.size());
+        List<Long> missing = new ArrayList<>();
+        for (Long id : ids) {
+            T value = byId.get(id);
+            if (value == null) {
+                missing.add(id);
+            } else {
+                found.add(value);
+            }
+        }
+        return new IdBatchResult<>(found, missing);
+    }
+}
@@ -0,0 +1,6 @@
+package study.querydsl.dto;
+
+public enum MemberFacet {
+    TEAM,       //팀 이름별 회원 수 (팀 없음은 "(none)")
+    AGE_DECADE  //나이 10살 단위 회원 수 ("20~29")
+}
@@ -0,0 +1,13 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+public class MemberFacetResult {
+
+    private final List<MemberTeamDto> content;
+    private final Map<MemberFacet, Map<String, Long>> facets;
+}
@@ -0,0 +1,58 @@
+package study.querydsl.dto;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * import 진행 상황 - 파이프라인 쓰레드들이 갱신하고 조회 API가 그대로 JSON으로 내려준다.
+ */
+@Getter
+public class MemberImportProgress {
+
+    private static final int MAX_ERRORS = 20;
+
+    public enum State { RUNNING, COMPLETED, FAILED }
+
+    private final String importId;
+    private final long skippedLines; //재시작 시 이전에 처리해서 건너뛴 줄 수
+    private final long startedAt = System.currentTimeMillis();
+    private volatile State state = State.RUNNING;
+    private volatile String failure;
+    private volatile long finishedAt; //0이면 진행 중, 끝난 뒤 보관 기간 계산용
+
+    private final AtomicLong parsed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong committed = new AtomicLong();
+    private final List<String> errors = Collections.synchronizedList(new ArrayList<>()); //앞쪽 일부만 보관
+
+    public MemberImportProgress(String importId, long skippedLines) {
+        this.importId = importId;
+        this.skippedLines = skippedLines;
+    }
+
+    public void reject(long line, String reason) {
+        rejected.incrementAndGet();
+        if (errors.size() < MAX_ERRORS) {
+            errors.add("line " + line + ": " + reason);
+        }
+    }
+
+    public void complete() {
+        state = State.COMPLETED;
+        finishedAt = System.currentTimeMillis();
+    }
+
+    public void fail(Throwable e) {
+        failure = String.valueOf(e.getMessage());
+        state = State.FAILED;
+        finishedAt = System.currentTimeMillis();
+    }
+
+    public long getElapsedMs() {
+        return System.currentTimeMillis() - startedAt;
+    }
+}
@@ -0,0 +1,19 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+
+@Data
+public class MemberImportRow {
+
+    private String username;
+    private Integer age;
+    private String teamName; //없으면 팀 없이 저장
+
+    public MemberImportRow() {}
+
+    public MemberImportRow(String username, Integer age, String teamName) {
+        this.username = username;
+        this.age = age;
+        this.teamName = teamName;
+    }
+}
@@ -1,13 +1,22 @@
 package study.querydsl.dto;
 
 import lombok.Data;
+import study.querydsl.search.Eq;
+import study.querydsl.search.Goe;
+import study.querydsl.search.Loe;
 
 @Data
 public class MemberSearchCondition {
     //회원명, 팀명, 나이(ageGoe, ageLoe)
 
+    @Eq("member.username")
     private String username;
+    @Eq("team.name")
     private String teamName;
+    @Goe("member.age")
     private Integer ageGoe;
+    @Loe("member.age")
     private Integer ageLoe;
+
+    private boolean includeArchive; //true 면 member_archive 로 옮긴 회원도 검색 (search(condition) 만)
 }
@@ -0,0 +1,12 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class MemberSearchPage {
+
+    private final List<MemberTeamDto> content;
+    private final CountEstimate total;
+}
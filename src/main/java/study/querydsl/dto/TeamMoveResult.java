@@ -0,0 +1,16 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+
+/**
+ * 팀 이동 결과. fromTeamSize, toTeamSize 는 이동 후 DB 기준 팀 회원 수
+ */
+@Data
+public class TeamMoveResult {
+
+    private final Long fromTeamId;
+    private final Long toTeamId;
+    private final long moved;
+    private final long fromTeamSize;
+    private final long toTeamSize;
+}
@@ -0,0 +1,89 @@
+package study.querydsl.limit;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * AIMD 동시 실행 제한
+ * - 응답이 latencyThreshold 안에 오고 limit 근처까지 쓰고 있으면 limit 을 1/limit 씩 올린다. (limit 번 성공하면 +1)
+ * - 느리거나 실패하면 limit 에 backoffRatio 를 곱해서 줄인다. 단, 마지막으로 줄인 뒤에 시작한 요청의 신호만 반영한다.
+ *   이미 줄이기 전에 시작한 요청들은 예전 limit 의 결과이므로, 한 번의 과부하에 몰려 끝나는 느린 응답마다 곱하면 limit 이 바로 바닥까지 떨어진다. (RTT 당 한 번)
+ * 대기열을 두지 않는다. limit 을 넘는 요청은 바로 거절해서 DB 커넥션 대기열이 쌓이지 않게 한다.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final LimiterProperties properties;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+    private long lastBackoffNanos; //this 로 보호
+
+    private final Map<RequestPriority, AtomicLong> accepted = new EnumMap<>(RequestPriority.class);
+    private final Map<RequestPriority, AtomicLong> rejected = new EnumMap<>(RequestPriority.class);
+
+    public AdaptiveConcurrencyLimiter(LimiterProperties properties) {
+        this.properties = properties;
+        this.limit = properties.getInitialLimit();
+        this.lastBackoffNanos = System.nanoTime();
+        for (RequestPriority priority : RequestPriority.values()) {
+            accepted.put(priority, new AtomicLong());
+            rejected.put(priority, new AtomicLong());
+        }
+    }
+
+    public boolean tryAcquire(RequestPriority priority) {
+        int allowed = allowed(priority);
+        while (true) {
+            int current = inFlight.get();
+            if (current >= allowed) {
+                rejected.get(priority).incrementAndGet();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                accepted.get(priority).incrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * tryAcquire 가 true 였던 요청이 끝나면 반드시 호출해야 한다.
+     */
+    public void release(long latencyNanos, boolean success) {
+        int current = inFlight.getAndDecrement();
+        long thresholdNanos = properties.getLatencyThresholdMs() * 1_000_000L;
+        long now = System.nanoTime();
+        synchronized (this) {
+            if (!success || latencyNanos > thresholdNanos) {
+                if (now - latencyNanos - lastBackoffNanos >= 0) { //마지막으로 줄인 뒤에 시작한 요청
+                    limit = Math.max(properties.getMinLimit(), limit * properties.getBackoffRatio());
+                    lastBackoffNanos = now;
+                }
+            } else if (current * 2 >= limit) { //한가할 때 limit 만 계속 커지는 것을 막는다.
+                limit = Math.min(properties.getMaxLimit(), limit + 1 / limit);
+            }
+        }
+    }
+
+    private int allowed(RequestPriority priority) {
+        int whole = (int) limit;
+        return priority == RequestPriority.EXPORT ? (int) (whole * properties.getExportShare()) : whole;
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getAccepted(RequestPriority priority) {
+        return accepted.get(priority).get();
+    }
+
+    public long getRejected(RequestPriority priority) {
+        return rejected.get(priority).get();
+    }
+}
@@ -0,0 +1,45 @@
+package study.querydsl.limit;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 검색 API 앞단에서 동시 실행 수를 제한한다.
+ * 포화 시 INTERACTIVE 는 503, EXPORT 는 429 로 바로 응답한다. (둘 다 Retry-After 포함)
+ */
+@RequiredArgsConstructor
+public class ConcurrencyLimitInterceptor implements HandlerInterceptor {
+
+    public static final String PRIORITY_HEADER = "X-Request-Priority";
+    private static final String STARTED_AT = ConcurrencyLimitInterceptor.class.getName() + ".startedAt";
+
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final int retryAfterSeconds;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        RequestPriority priority = RequestPriority.from(request.getHeader(PRIORITY_HEADER));
+        if (!limiter.tryAcquire(priority)) {
+            HttpStatus status = priority == RequestPriority.EXPORT ? HttpStatus.TOO_MANY_REQUESTS : HttpStatus.SERVICE_UNAVAILABLE;
+            response.setStatus(status.value());
+            response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+            return false;
+        }
+        request.setAttribute(STARTED_AT, System.nanoTime());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object startedAt = request.getAttribute(STARTED_AT);
+        if (startedAt == null) { //거절된 요청
+            return;
+        }
+        boolean success = ex == null && response.getStatus() < 500;
+        limiter.release(System.nanoTime() - (Long) startedAt, success);
+    }
+}
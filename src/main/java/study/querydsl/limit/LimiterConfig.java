@@ -0,0 +1,47 @@
+package study.querydsl.limit;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@EnableConfigurationProperties(LimiterProperties.class)
+public class LimiterConfig implements WebMvcConfigurer {
+
+    private final LimiterProperties properties;
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    public LimiterConfig(LimiterProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.limiter = new AdaptiveConcurrencyLimiter(properties);
+
+        Gauge.builder("member.search.limit", limiter, AdaptiveConcurrencyLimiter::getLimit).register(meterRegistry);
+        Gauge.builder("member.search.limit.in-flight", limiter, AdaptiveConcurrencyLimiter::getInFlight).register(meterRegistry);
+        for (RequestPriority priority : RequestPriority.values()) {
+            String tag = priority.name().toLowerCase();
+            FunctionCounter.builder("member.search.limit.accepted", limiter, l -> l.getAccepted(priority))
+                    .tag("priority", tag).register(meterRegistry);
+            FunctionCounter.builder("member.search.limit.rejected", limiter, l -> l.getRejected(priority))
+                    .tag("priority", tag).register(meterRegistry);
+        }
+    }
+
+    @Bean
+    public AdaptiveConcurrencyLimiter memberSearchLimiter() {
+        return limiter;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        registry.addInterceptor(new ConcurrencyLimitInterceptor(limiter, properties.getRetryAfterSeconds()))
+                .addPathPatterns("/v1/members", "/v1/members/facets", "/v2/members", "/v2/members/page");
+    }
+}
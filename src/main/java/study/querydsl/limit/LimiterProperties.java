@@ -0,0 +1,20 @@
+package study.querydsl.limit;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "member.search.limit")
+public class LimiterProperties {
+
+    private boolean enabled = true;
+    private int initialLimit = 20;
+    private int minLimit = 2;
+    private int maxLimit = 200;
+    private long latencyThresholdMs = 200; //이보다 느린 응답은 과부하 신호로 본다.
+    private double backoffRatio = 0.9;     //과부하 신호마다 limit *= backoffRatio
+    private double exportShare = 0.5;      //EXPORT 는 limit 의 이 비율까지만 동시에 들어올 수 있다.
+    private int retryAfterSeconds = 1;
+}
@@ -0,0 +1,14 @@
+package study.querydsl.limit;
+
+/**
+ * 요청 우선순위. X-Request-Priority 헤더로 지정하고 없으면 INTERACTIVE
+ * 포화 상태에서는 EXPORT 가 먼저 잘린다.
+ */
+public enum RequestPriority {
+    INTERACTIVE, //화면 검색
+    EXPORT;      //대량 다운로드, 배치 조회
+
+    public static RequestPriority from(String header) {
+        return header != null && header.equalsIgnoreCase("export") ? EXPORT : INTERACTIVE;
+    }
+}
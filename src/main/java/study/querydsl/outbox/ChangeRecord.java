@@ -0,0 +1,26 @@
+package study.querydsl.outbox;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import study.querydsl.domain.ChangeType;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * 구독자에게 전달되는 변경 레코드
+ * id는 아웃박스에 저장된 이후에만 채워진다.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class ChangeRecord {
+
+    private final Long id;
+    private final String aggregateType;
+    private final Long aggregateId;
+    private final ChangeType changeType;
+    private final Map<String, Object> state;
+    private final LocalDateTime createdAt;
+}
@@ -0,0 +1,92 @@
+package study.querydsl.outbox;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Hibernate;
+import org.hibernate.engine.internal.ForeignKeys;
+import org.hibernate.event.spi.*;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.type.EntityType;
+import org.hibernate.type.Type;
+import org.springframework.stereotype.Component;
+import study.querydsl.domain.ChangeType;
+import study.querydsl.domain.Member;
+import study.querydsl.domain.Team;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Member, Team의 insert/update/delete를 아웃박스 레코드로 변환한다.
+ * changeTeam()도 flush 시점에 team 필드가 dirty로 잡히기 때문에 UPDATE(teamId)로 기록된다.
+ */
+@Component
+@RequiredArgsConstructor
+public class OutboxEventListener implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private final OutboxRecorder recorder;
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (isTracked(event.getEntity())) {
+            Object[] state = event.getState();
+            record(event.getSession(), event.getEntity(), event.getId(), ChangeType.INSERT,
+                    snapshot(event.getSession(), event.getPersister(), state, allIndexes(state)));
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (isTracked(event.getEntity())) {
+            Object[] state = event.getState();
+            int[] dirty = event.getDirtyProperties() == null ? allIndexes(state) : event.getDirtyProperties();
+            record(event.getSession(), event.getEntity(), event.getId(), ChangeType.UPDATE,
+                    snapshot(event.getSession(), event.getPersister(), state, dirty));
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (isTracked(event.getEntity())) {
+            record(event.getSession(), event.getEntity(), event.getId(), ChangeType.DELETE, new LinkedHashMap<>());
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false; //커밋 이후가 아니라 같은 트랜잭션 안에서 기록해야 한다.
+    }
+
+    private boolean isTracked(Object entity) {
+        return entity instanceof Member || entity instanceof Team;
+    }
+
+    private void record(EventSource session, Object entity, Serializable id, ChangeType changeType, Map<String, Object> state) {
+        recorder.record(session, Hibernate.getClass(entity).getSimpleName(), (Long) id, changeType, state);
+    }
+
+    private Map<String, Object> snapshot(EventSource session, EntityPersister persister, Object[] state, int[] indexes) {
+        String[] names = persister.getPropertyNames();
+        Type[] types = persister.getPropertyTypes();
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (int i : indexes) {
+            if (types[i].isCollectionType()) { //Team.members 같은 컬렉션은 기록하지 않는다.
+                continue;
+            }
+            if (types[i].isEntityType()) { //연관관계는 id만 기록 (team -> teamId)
+                String entityName = ((EntityType) types[i]).getAssociatedEntityName();
+                Object value = state[i] == null ? null : ForeignKeys.getEntityIdentifierIfNotUnsaved(entityName, state[i], session);
+                result.put(names[i] + "Id", value);
+            } else {
+                result.put(names[i], state[i]);
+            }
+        }
+        return result;
+    }
+
+    private int[] allIndexes(Object[] state) {
+        return IntStream.range(0, state.length).toArray();
+    }
+}
@@ -0,0 +1,42 @@
+package study.querydsl.outbox;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 외부 메시지 큐 대신 쓰는 로컬 큐 구독자
+ * 큐가 가득 차면 예외를 던져 relay 트랜잭션을 롤백시킨다. -> 아웃박스에 남아서 다음 주기에 다시 시도 (backpressure)
+ */
+@Component
+@ConditionalOnProperty(name = "outbox.queue.enabled", havingValue = "true")
+public class OutboxQueueSubscriber implements OutboxSubscriber {
+
+    private final BlockingQueue<ChangeRecord> queue;
+
+    public OutboxQueueSubscriber(@Value("${outbox.queue.capacity:100000}") int capacity) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    @Override
+    public void onChanges(List<ChangeRecord> records) {
+        if (queue.remainingCapacity() < records.size()) {
+            throw new IllegalStateException("outbox queue 가득 참 size=" + queue.size());
+        }
+        queue.addAll(records);
+    }
+
+    public ChangeRecord poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return queue.poll(timeout, unit);
+    }
+
+    public int drainTo(Collection<? super ChangeRecord> target, int maxElements) {
+        return queue.drainTo(target, maxElements);
+    }
+}
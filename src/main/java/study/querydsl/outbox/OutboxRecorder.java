@@ -0,0 +1,95 @@
+package study.querydsl.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.querydsl.core.types.Predicate;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.event.spi.EventSource;
+import org.springframework.stereotype.Component;
+import study.querydsl.domain.ChangeType;
+
+import javax.persistence.EntityManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 변경 레코드를 세션(=트랜잭션) 단위로 모아두었다가 커밋 직전에 한 번의 JDBC batch로 아웃박스에 저장한다.
+ * 리스너에서는 메모리에 쌓기만 하기 때문에 쓰기 트랜잭션에 추가되는 비용은 insert batch 한 번이다.
+ */
+@Component
+@RequiredArgsConstructor
+public class OutboxRecorder {
+
+    private static final String INSERT_SQL =
+            "insert into outbox_event (aggregate_type, aggregate_id, change_type, payload, created_at) values (?, ?, ?, ?, ?)";
+
+    private final ObjectMapper objectMapper;
+
+    private final Map<EventSource, List<ChangeRecord>> buffers = new ConcurrentHashMap<>();
+
+    public void record(EventSource session, String aggregateType, Long aggregateId,
+                       ChangeType changeType, Map<String, Object> state) {
+        buffers.computeIfAbsent(session, this::register)
+                .add(new ChangeRecord(null, aggregateType, aggregateId, changeType, state, LocalDateTime.now()));
+    }
+
+    /**
+     * 벌크 update/delete는 Hibernate 이벤트가 발생하지 않으므로 where 조건을 범위로 직접 기록한다.
+     */
+    public void recordBulk(EntityManager em, String aggregateType, ChangeType changeType, Predicate where, long affected) {
+        Map<String, Object> state = new LinkedHashMap<>();
+        state.put("where", where == null ? null : where.toString());
+        state.put("affected", affected);
+        record(em.unwrap(EventSource.class), aggregateType, null, changeType, state);
+    }
+
+    private List<ChangeRecord> register(EventSource session) {
+        //flush가 끝난 뒤 커밋 직전에 실행된다. -> 같은 트랜잭션에서 저장됨
+        session.getActionQueue().registerProcess(this::flush);
+        //롤백되면 before 단계가 실행되지 않으므로 after 단계에서 버퍼를 정리한다.
+        session.getActionQueue().registerProcess((success, s) -> buffers.remove(session));
+        return new ArrayList<>();
+    }
+
+    private void flush(SessionImplementor session) {
+        List<ChangeRecord> records = buffers.remove(session);
+        if (records == null || records.isEmpty()) {
+            return;
+        }
+
+        session.doWork(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_SQL)) {
+                for (ChangeRecord record : records) {
+                    ps.setString(1, record.getAggregateType());
+                    if (record.getAggregateId() == null) {
+                        ps.setNull(2, Types.BIGINT);
+                    } else {
+                        ps.setLong(2, record.getAggregateId());
+                    }
+                    ps.setString(3, record.getChangeType().name());
+                    ps.setString(4, toJson(record.getState()));
+                    ps.setTimestamp(5, Timestamp.valueOf(record.getCreatedAt()));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        });
+    }
+
+    private String toJson(Map<String, Object> state) throws SQLException {
+        try {
+            return objectMapper.writeValueAsString(state);
+        } catch (JsonProcessingException e) {
+            throw new SQLException("outbox payload 변환 실패", e);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package study.querydsl.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.domain.OutboxEvent;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static study.querydsl.domain.QOutboxEvent.outboxEvent;
+
+/**
+ * 아웃박스를 id 순서대로 batch 단위로 읽어 구독자에게 전달하고, 전달이 끝난 레코드는 삭제한다.
+ * 구독자가 실패하면 트랜잭션이 롤백되어 같은 batch가 다음 주기에 다시 전달된다.
+ */
+@Slf4j
+@Component
+@Lazy(false) //lazy-initialization 이어도 @Scheduled 가 등록되어야 한다.
+public class OutboxRelay {
+
+    private static final TypeReference<Map<String, Object>> STATE_TYPE = new TypeReference<>() {};
+
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final ObjectProvider<OutboxSubscriber> subscribers; //구독자가 하나도 없어도 relay는 동작해야 한다.
+    private final int batchSize;
+
+    public OutboxRelay(EntityManager em,
+                       PlatformTransactionManager transactionManager,
+                       ObjectMapper objectMapper,
+                       ObjectProvider<OutboxSubscriber> subscribers,
+                       @Value("${outbox.relay.batch-size:1000}") int batchSize) {
+        this.queryFactory = new JPAQueryFactory(em);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.subscribers = subscribers;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.relay.fixed-delay:200}", initialDelayString = "${outbox.relay.initial-delay:1000}")
+    public void relay() {
+        try {
+            int relayed;
+            do {
+                relayed = relayOnce();
+            } while (relayed == batchSize); //밀려있으면 쉬지 않고 계속 비운다.
+        } catch (RuntimeException e) {
+            log.warn("outbox relay 실패, 다음 주기에 재시도", e);
+        }
+    }
+
+    /**
+     * @return 이번에 전달한 레코드 수
+     */
+    public int relayOnce() {
+        Integer relayed = transactionTemplate.execute(status -> {
+            List<OutboxEvent> events = queryFactory
+                    .selectFrom(outboxEvent)
+                    .orderBy(outboxEvent.id.asc())
+                    .limit(batchSize)
+                    .fetch();
+
+            if (events.isEmpty()) {
+                return 0;
+            }
+
+            List<ChangeRecord> records = events.stream()
+                    .map(this::toRecord)
+                    .collect(Collectors.toList());
+
+            subscribers.orderedStream().forEach(subscriber -> subscriber.onChanges(records));
+
+            //loe(마지막 id)로 지우면 아직 커밋되지 않은 앞 번호 레코드를 건드릴 수 있어서 읽은 id만 지운다.
+            queryFactory
+                    .delete(outboxEvent)
+                    .where(outboxEvent.id.in(events.stream().map(OutboxEvent::getId).collect(Collectors.toList())))
+                    .execute();
+            return events.size();
+        });
+        return relayed == null ? 0 : relayed;
+    }
+
+    private ChangeRecord toRecord(OutboxEvent event) {
+        try {
+            return new ChangeRecord(event.getId(), event.getAggregateType(), event.getAggregateId(),
+                    event.getChangeType(), objectMapper.readValue(event.getPayload(), STATE_TYPE), event.getCreatedAt());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("outbox payload 파싱 실패 id=" + event.getId(), e);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package study.querydsl.outbox;
+
+import java.util.List;
+
+public interface OutboxSubscriber {
+
+    /**
+     * 아웃박스 id 순서대로 batch 단위로 호출된다.
+     * 예외를 던지면 batch 전체가 다음 relay 때 다시 전달된다. (at-least-once)
+     */
+    void onChanges(List<ChangeRecord> records);
+}
@@ -0,0 +1,48 @@
+package study.querydsl.repository;
+
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.Oracle8iDialect;
+import org.hibernate.dialect.SQLServerDialect;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * IN (...) 목록을 청크로 나누고, 각 청크의 파라미터 개수를 2의 거듭제곱으로 채운다. (마지막 id 반복)
+ * id 개수가 매번 달라도 IN 절 모양은 1, 2, 4, ... max 중 하나라서 쿼리 플랜 캐시와 statement cache 를 재사용한다.
+ */
+final class InListChunker {
+
+    private InListChunker() {
+    }
+
+    //DB 별 IN 목록/바인드 파라미터 한도 안에서 가장 큰 2의 거듭제곱
+    static int maxChunkSize(Dialect dialect, int configured) {
+        int limit = Integer.MAX_VALUE;
+        if (dialect instanceof Oracle8iDialect) {
+            limit = 1000; //ORA-01795
+        } else if (dialect instanceof SQLServerDialect) {
+            limit = 2000; //바인드 파라미터 2100개 제한
+        }
+        return Integer.highestOneBit(Math.max(1, Math.min(configured, limit)));
+    }
+
+    static List<List<Long>> chunks(List<Long> ids, int maxChunkSize) {
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += maxChunkSize) {
+            List<Long> chunk = new ArrayList<>(ids.subList(from, Math.min(from + maxChunkSize, ids.size())));
+            Long last = chunk.get(chunk.size() - 1);
+            int padded = paddedSize(chunk.size());
+            while (chunk.size() < padded) {
+                chunk.add(last);
+            }
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    static int paddedSize(int size) {
+        int highest = Integer.highestOneBit(size);
+        return highest == size ? size : highest << 1;
+    }
+}
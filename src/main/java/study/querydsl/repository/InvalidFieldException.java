@@ -0,0 +1,12 @@
+package study.querydsl.repository;
+
+/**
+ * 요청으로 들어온 선택 필드(fields)가 비어 있거나 화이트리스트(MemberField)에 없을 때
+ * 컨트롤러는 이 예외만 400 으로 바꾼다. (InvalidSortException 참고)
+ */
+public class InvalidFieldException extends RuntimeException {
+
+    public InvalidFieldException(String message) {
+        super(message);
+    }
+}
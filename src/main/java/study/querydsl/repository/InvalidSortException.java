@@ -0,0 +1,13 @@
+package study.querydsl.repository;
+
+/**
+ * 요청으로 들어온 정렬 필드가 화이트리스트(MemberSortKey)에 없을 때
+ * 컨트롤러는 이 예외만 400 으로 바꾼다. (다른 IllegalArgumentException 은 프로그래밍 오류로 본다)
+ * IllegalArgumentException 이면 리포지토리 예외 변환이 InvalidDataAccessApiUsageException 으로 감싸므로 RuntimeException 을 상속한다.
+ */
+public class InvalidSortException extends RuntimeException {
+
+    public InvalidSortException(String message) {
+        super(message);
+    }
+}
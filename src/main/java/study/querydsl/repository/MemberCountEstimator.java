@@ -0,0 +1,166 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.domain.ChangeType;
+import study.querydsl.dto.CountEstimate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.outbox.ChangeRecord;
+import study.querydsl.outbox.OutboxSubscriber;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.aspectj.util.LangUtil.isEmpty;
+import static study.querydsl.domain.QMember.member;
+import static study.querydsl.domain.QTeam.team;
+
+/**
+ * 큰 검색 결과의 전체 건수를 count 쿼리 없이 추정한다.
+ * (팀명, 나이) 조합별 회원 수 히스토그램을 주기적으로 한 번에 만들어 두고, 검색 조건에 맞는 칸만 더한다.
+ * 히스토그램 이후 아웃박스로 들어온 회원 변경 건수가 곧 오차 한계가 된다. (변경 1건은 count 를 최대 1 바꾼다)
+ * 추정치가 작으면(exact-threshold 미만) 정확한 count 쿼리를 날려도 싸므로 그냥 정확하게 센다.
+ */
+@Slf4j
+@Component
+@Lazy(false) //lazy-initialization 이어도 @Scheduled 가 등록되어야 한다.
+public class MemberCountEstimator implements OutboxSubscriber {
+
+    private final MemberRepository memberRepository;
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate readOnlyTx;
+    private final long exactThreshold;
+
+    private volatile List<Cell> histogram; //null 이면 아직 안 만들어짐
+    private final AtomicLong drift = new AtomicLong(); //histogram 이후 반영된 회원 변경 수
+    private final AtomicLong invalidations = new AtomicLong(); //팀 이름 변경/삭제마다 증가 -> 그 전에 읽기 시작한 집계는 버린다.
+
+    public MemberCountEstimator(MemberRepository memberRepository, EntityManager em,
+                                PlatformTransactionManager txManager,
+                                @Value("${member.count.exact-threshold:10000}") long exactThreshold) {
+        this.memberRepository = memberRepository;
+        this.queryFactory = new JPAQueryFactory(em);
+        this.readOnlyTx = new TransactionTemplate(txManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.exactThreshold = exactThreshold;
+    }
+
+    public CountEstimate count(MemberSearchCondition condition) {
+        List<Cell> cells = histogram;
+        //username 은 인덱스(idx_member_username)를 타므로 정확히 세도 싸다.
+        if (cells == null || !isEmpty(condition.getUsername())) {
+            return CountEstimate.exact(memberRepository.searchCount(condition));
+        }
+
+        long estimate = 0;
+        for (Cell cell : cells) {
+            if (cell.matches(condition)) {
+                estimate += cell.count;
+            }
+        }
+        if (estimate < exactThreshold) {
+            return CountEstimate.exact(memberRepository.searchCount(condition));
+        }
+        return CountEstimate.approximate(estimate, drift.get());
+    }
+
+    /**
+     * 히스토그램 재생성. group by 한 번이라 전체 스캔이지만 요청마다가 아니라 주기마다 한 번만 돈다.
+     */
+    @Scheduled(fixedDelayString = "${member.count.refresh-ms:60000}", initialDelayString = "${member.count.initial-delay-ms:5000}")
+    public void refresh() {
+        long generation = invalidations.get();
+        long driftBefore = drift.get();
+        List<Tuple> rows = readOnlyTx.execute(status -> queryFactory
+                .select(team.name, member.age, member.count())
+                .from(member)
+                .leftJoin(member.team, team)
+                .groupBy(team.name, member.age)
+                .fetch());
+
+        List<Cell> cells = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            cells.add(new Cell(row.get(team.name), row.get(member.age), row.get(member.count())));
+        }
+        if (!publish(cells, generation)) {
+            log.debug("member count histogram discarded (team renamed or deleted during refresh)");
+            return;
+        }
+        drift.addAndGet(-driftBefore); //집계 도중 들어온 변경은 오차로 남겨 둔다.
+        log.debug("member count histogram refreshed cells={}", cells.size());
+    }
+
+    //집계를 시작한 뒤 무효화가 있었으면 옛 분포이므로 올리지 않는다. invalidate() 와 같은 락으로 확인과 교체를 묶는다.
+    private synchronized boolean publish(List<Cell> cells, long generation) {
+        if (invalidations.get() != generation) {
+            return false;
+        }
+        histogram = cells;
+        return true;
+    }
+
+    private synchronized void invalidate() {
+        invalidations.incrementAndGet();
+        histogram = null;
+    }
+
+    @Override
+    public void onChanges(List<ChangeRecord> records) {
+        long changed = 0;
+        for (ChangeRecord record : records) {
+            if ("Team".equals(record.getAggregateType())) {
+                //팀 이름 변경/삭제는 소속 회원 전체가 다른 칸으로 옮겨가므로 오차를 셀 수 없다 -> 다음 refresh 까지 정확히 센다.
+                //새 팀(INSERT)은 아직 회원이 없어서 히스토그램에 영향이 없다.
+                boolean renamedOrDeleted = (record.getChangeType() == ChangeType.UPDATE && record.getState().containsKey("name"))
+                        || record.getChangeType() == ChangeType.DELETE;
+                if (renamedOrDeleted) {
+                    invalidate();
+                }
+                continue;
+            }
+            if (!"Member".equals(record.getAggregateType())) {
+                continue;
+            }
+            if (record.getChangeType() == ChangeType.BULK_UPDATE || record.getChangeType() == ChangeType.BULK_DELETE) {
+                Object affected = record.getState().get("affected");
+                changed += affected instanceof Number ? ((Number) affected).longValue() : 0;
+            } else {
+                changed++;
+            }
+        }
+        drift.addAndGet(changed);
+    }
+
+    private static class Cell {
+
+        private final String teamName; //팀 없는 회원은 null
+        private final Integer age;
+        private final long count;
+
+        Cell(String teamName, Integer age, Long count) {
+            this.teamName = teamName;
+            this.age = age;
+            this.count = count == null ? 0 : count;
+        }
+
+        boolean matches(MemberSearchCondition condition) {
+            if (!isEmpty(condition.getTeamName()) && !Objects.equals(teamName, condition.getTeamName())) {
+                return false;
+            }
+            if (condition.getAgeGoe() != null && (age == null || age < condition.getAgeGoe())) {
+                return false;
+            }
+            return condition.getAgeLoe() == null || (age != null && age <= condition.getAgeLoe());
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.types.Expression;
+import lombok.Getter;
+
+import java.util.Arrays;
+
+import static study.querydsl.domain.QMember.member;
+import static study.querydsl.domain.QTeam.team;
+
+/**
+ * ?fields= 로 선택할 수 있는 필드 화이트리스트
+ * teamId 는 member.team_id FK 컬럼이라 team 조인이 필요 없다.
+ */
+@Getter
+public enum MemberField {
+
+    ID("id", member.id, false),
+    USERNAME("username", member.username, false),
+    AGE("age", member.age, false),
+    TEAM_ID("teamId", member.team.id, false),
+    TEAM_NAME("teamName", team.name, true);
+
+    private final String property;
+    private final Expression<?> path;
+    private final boolean teamJoin;
+
+    MemberField(String property, Expression<?> path, boolean teamJoin) {
+        this.property = property;
+        this.path = path;
+        this.teamJoin = teamJoin;
+    }
+
+    public static MemberField from(String property) {
+        return Arrays.stream(values())
+                .filter(field -> field.property.equals(property))
+                .findFirst()
+                .orElseThrow(() -> new InvalidFieldException("선택할 수 없는 필드입니다: " + property));
+    }
+}
@@ -1,32 +1,70 @@
 package study.querydsl.repository;
 
 import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.Cache;
+import org.hibernate.Hibernate;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.jpa.QueryHints;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.deadline.Deadline;
+import study.querydsl.deadline.DeadlineQueryFactory;
+import study.querydsl.domain.ChangeType;
 import study.querydsl.domain.Member;
+import study.querydsl.domain.Team;
+import study.querydsl.dto.IdBatchResult;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.dto.TeamMoveResult;
+import study.querydsl.outbox.OutboxRecorder;
+import study.querydsl.search.ConditionPredicates;
 
 import javax.persistence.EntityManager;
-import java.util.List;
-import java.util.Optional;
+import javax.persistence.EntityManagerFactory;
+import java.util.*;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-import static org.aspectj.util.LangUtil.isEmpty;
 import static org.springframework.util.StringUtils.hasText;
 import static study.querydsl.domain.QMember.member;
 import static study.querydsl.domain.QTeam.team;
 
 @Repository
-public class MemberJpaRepository {
+public class MemberJpaRepository implements DisposableBean {
+
+    private static final ConditionPredicates<MemberSearchCondition> SEARCH = ConditionPredicates.of(MemberSearchCondition.class, member, team);
 
     private final EntityManager em;
     private final JPAQueryFactory queryFactory; //QueryDsl 쓰려면 필요함
+    private final OutboxRecorder outboxRecorder;
+    private final EntityManagerFactory emf;
+    private final int maxChunkSize; //IN 목록 최대 크기 (2의 거듭제곱)
+    private final ExecutorService chunkExecutor; //member.batch.parallelism > 1 일 때만
 
-    public MemberJpaRepository(EntityManager em) {
+    public MemberJpaRepository(EntityManager em, OutboxRecorder outboxRecorder, EntityManagerFactory emf,
+                               @Value("${member.batch.max-in-size:512}") int maxInSize,
+                               @Value("${member.batch.parallelism:1}") int parallelism) {
         this.em = em;
-        this.queryFactory = new JPAQueryFactory(em);
+        this.queryFactory = new DeadlineQueryFactory(em); //요청 시간 예산 -> 쿼리 타임아웃
+        this.outboxRecorder = outboxRecorder;
+        this.emf = emf;
+        this.maxChunkSize = InListChunker.maxChunkSize(
+                emf.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect(), maxInSize);
+        this.chunkExecutor = parallelism > 1 ? Executors.newFixedThreadPool(parallelism) : null;
     }
 
     public void save(Member member) {
@@ -38,8 +76,76 @@ public class MemberJpaRepository {
         return Optional.ofNullable(findMember);
     }
 
+    /**
+     * findById 를 N번 부르는 대신 IN 절 청크로 한 번에 조회한다.
+     * 영속성 컨텍스트나 2차 캐시에 이미 있는 회원은 SQL 없이 쓴다.
+     */
+    public IdBatchResult<Member> findAllByIds(Collection<Long> ids) {
+        List<Long> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        Map<Long, Member> found = new HashMap<>();
+        List<Long> toLoad = new ArrayList<>();
+        for (Long id : distinct) {
+            Member cached = cachedMember(id);
+            if (cached != null) {
+                found.put(id, cached);
+            } else {
+                toLoad.add(id);
+            }
+        }
+
+        //엔티티는 호출한 쪽 영속성 컨텍스트에 올라가야 하므로 청크를 순서대로 같은 EntityManager 로 읽는다.
+        for (List<Long> chunk : InListChunker.chunks(toLoad, maxChunkSize)) {
+            queryFactory
+                    .selectFrom(member)
+                    .where(member.id.in(chunk))
+                    .fetch()
+                    .forEach(m -> found.put(m.getId(), m));
+        }
+        return IdBatchResult.of(distinct, found);
+    }
+
+    /**
+     * findAllByIds 의 DTO 버전 (team 조인)
+     * 트랜잭션 밖이고 member.batch.parallelism > 1 이면 청크를 별도 커넥션에서 병렬로 읽는다.
+     * 트랜잭션 안에서는 아직 커밋하지 않은 변경이 보여야 하므로 같은 EntityManager 로 순서대로 읽는다.
+     */
+    public IdBatchResult<MemberTeamDto> findTeamDtosByIds(Collection<Long> ids) {
+        List<Long> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        Map<Long, MemberTeamDto> found = new HashMap<>();
+        List<Long> toLoad = new ArrayList<>();
+        for (Long id : distinct) {
+            Member cached = cachedMember(id);
+            //팀이 아직 프록시면 팀 이름 때문에 쿼리가 한 번 더 나가므로 IN 절로 같이 읽는다.
+            if (cached != null && (cached.getTeam() == null || Hibernate.isInitialized(cached.getTeam()))) {
+                found.put(id, toDto(cached));
+            } else {
+                toLoad.add(id);
+            }
+        }
+
+        List<List<Long>> chunks = InListChunker.chunks(toLoad, maxChunkSize);
+        boolean parallel = chunkExecutor != null && chunks.size() > 1
+                && !TransactionSynchronizationManager.isActualTransactionActive();
+        if (parallel) {
+            Deadline deadline = Deadline.current(); //작업 쓰레드에는 요청 ThreadLocal 이 없으므로 넘겨준다.
+            List<Future<List<MemberTeamDto>>> futures = new ArrayList<>();
+            for (List<Long> chunk : chunks) {
+                futures.add(chunkExecutor.submit(() -> fetchTeamDtosInOwnEntityManager(chunk, deadline)));
+            }
+            for (Future<List<MemberTeamDto>> future : futures) {
+                join(future).forEach(dto -> found.put(dto.getMemberId(), dto));
+            }
+        } else {
+            for (List<Long> chunk : chunks) {
+                teamDtoQuery(queryFactory.query(), chunk).fetch()
+                        .forEach(dto -> found.put(dto.getMemberId(), dto));
+            }
+        }
+        return IdBatchResult.of(distinct, found);
+    }
+
     public List<Member> findAll() {
-        return em.createQuery("select m from Member m", Member.class)
+        return Deadline.applyTo(em.createQuery("select m from Member m", Member.class), em)
                 .getResultList();
     }
 
@@ -50,7 +156,7 @@ public class MemberJpaRepository {
     }
 
     public List<Member> findByUsername(String username) {
-        return em.createQuery("select m from Member m where m.username = :username", Member.class)
+        return Deadline.applyTo(em.createQuery("select m from Member m where m.username = :username", Member.class), em)
                 .setParameter("username", username)
                 .getResultList();
     }
@@ -109,25 +215,154 @@ public class MemberJpaRepository {
                         team.name))
                 .from(member)
                 .leftJoin(member.team, team)
-                .where(
-                        usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()))
+                .where(SEARCH.predicates(condition)) //조건 필드의 @Eq, @Goe, @Loe 로 만든다. (ConditionPredicates)
                 .fetch();
     }
 
-    private BooleanExpression usernameEq(String username) { //아래 메서드는 재사용이 가능하다!
-        return isEmpty(username) ? null : member.username.eq(username);
+    //벌크 연산은 Hibernate 이벤트가 발생하지 않기 때문에 아웃박스에 범위 단위 변경 이벤트를 직접 남긴다.
+    public long bulkAgePlus(int age) {
+        BooleanExpression range = member.age.goe(age);
+        long count = queryFactory
+                .update(member)
+                .set(member.age, member.age.add(1))
+                .set(member.version, member.version.add(1)) //벌크 연산도 버전을 올려야 동시에 수정 중인 엔티티가 충돌을 감지한다.
+                .where(range)
+                .execute();
+        outboxRecorder.recordBulk(em, "Member", ChangeType.BULK_UPDATE, range, count);
+        return count;
+    }
+
+    public long bulkDeleteByAgeGt(int age) {
+        BooleanExpression range = member.age.gt(age);
+        long count = queryFactory
+                .delete(member)
+                .where(range)
+                .execute();
+        outboxRecorder.recordBulk(em, "Member", ChangeType.BULK_DELETE, range, count);
+        return count;
+    }
+
+    /**
+     * fromTeam 회원 중 condition 에 맞는 회원을 toTeam 으로 옮긴다. (회원마다 changeTeam + UPDATE 대신 update 한 번)
+     * condition 의 teamName 은 fromTeam 과 같을 때만 의미가 있고, 다르면 옮길 회원이 없다.
+     * 벌크 update 는 영속성 컨텍스트를 거치지 않으므로 앞에서 flush 하고, 뒤에서 회원과 두 팀만 준영속으로 만든다.
+     * -> 호출 전에 읽은 Member 와 fromTeam/toTeam 은 준영속이 되고, 그 밖의 엔티티는 그대로 영속 상태다.
+     */
+    public TeamMoveResult moveMembers(Team fromTeam, Team toTeam, MemberSearchCondition condition) {
+        if (fromTeam.getId().equals(toTeam.getId())) { //같은 팀이면 옮길 것이 없다. (버전만 올리는 update 방지)
+            long size = teamSize(fromTeam);
+            return new TeamMoveResult(fromTeam.getId(), toTeam.getId(), 0, size, size);
+        }
+        if (hasText(condition.getTeamName()) && !condition.getTeamName().equals(fromTeam.getName())) {
+            return new TeamMoveResult(fromTeam.getId(), toTeam.getId(), 0, teamSize(fromTeam), teamSize(toTeam));
+        }
+        //팀은 member.team = fromTeam 으로 고정하고 나머지 조건만 쓴다. (update 에는 join 을 쓸 수 없다)
+        MemberSearchCondition memberOnly = new MemberSearchCondition();
+        memberOnly.setUsername(condition.getUsername());
+        memberOnly.setAgeGoe(condition.getAgeGoe());
+        memberOnly.setAgeLoe(condition.getAgeLoe());
+        Predicate range = ExpressionUtils.allOf(member.team.eq(fromTeam), ExpressionUtils.allOf(SEARCH.predicates(memberOnly)));
+
+        em.flush(); //아직 반영 안 된 changeTeam 등이 벌크 update 뒤에 덮어쓰지 않도록
+        long moved = queryFactory
+                .update(member)
+                .set(member.team, toTeam)
+                .set(member.version, member.version.add(1)) //동시에 수정 중인 엔티티가 충돌을 감지하도록
+                .where(range)
+                .execute();
+        outboxRecorder.recordBulk(em, "Member", ChangeType.BULK_UPDATE, range, moved);
+
+        //영속성 컨텍스트의 Member.team, Team.members 와 2차 캐시가 옛 팀을 가리키지 않도록 비운다.
+        detachMovedState(fromTeam, toTeam);
+        emf.getCache().evict(Member.class);
+        Cache cache = emf.unwrap(SessionFactoryImplementor.class).getCache();
+        cache.evictCollectionData(Team.class.getName() + ".members", fromTeam.getId());
+        cache.evictCollectionData(Team.class.getName() + ".members", toTeam.getId());
+
+        return new TeamMoveResult(fromTeam.getId(), toTeam.getId(), moved, teamSize(fromTeam), teamSize(toTeam));
+    }
+
+    //어떤 회원이 옮겨졌는지는 모르므로 Member 는 전부, Team 은 members 컬렉션이 바뀐 두 팀만 준영속으로 만든다.
+    private void detachMovedState(Team fromTeam, Team toTeam) {
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        List<Object> stale = new ArrayList<>();
+        for (Map.Entry<Object, EntityEntry> entry : session.getPersistenceContext().reentrantSafeEntityEntries()) {
+            Object entity = entry.getKey();
+            Object id = entry.getValue().getId();
+            if (entity instanceof Member
+                    || (entity instanceof Team && (fromTeam.getId().equals(id) || toTeam.getId().equals(id)))) {
+                stale.add(entity);
+            }
+        }
+        stale.forEach(em::detach);
+    }
+
+    //트랜잭션 안에서만 영속성 컨텍스트가 살아 있다. 2차 캐시 적중은 em.find 가 SQL 없이 돌려준다.
+    private Member cachedMember(Long id) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return emf.getCache().contains(Member.class, id) ? em.find(Member.class, id) : null;
+        }
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        EntityPersister persister = session.getFactory().getMetamodel().entityPersister(Member.class);
+        Object managed = session.getPersistenceContext().getEntity(session.generateEntityKey(id, persister));
+        if (managed != null) {
+            return (Member) managed;
+        }
+        return emf.getCache().contains(Member.class, id) ? em.find(Member.class, id) : null;
     }
-    private BooleanExpression teamNameEq(String teamName) {
-        return isEmpty(teamName) ? null : team.name.eq(teamName);
+
+    private List<MemberTeamDto> fetchTeamDtosInOwnEntityManager(List<Long> chunk, Deadline deadline) {
+        EntityManager chunkEm = emf.createEntityManager();
+        try {
+            JPAQuery<MemberTeamDto> query = teamDtoQuery(new JPAQuery<>(chunkEm), chunk);
+            if (deadline != null) {
+                query.setHint(QueryHints.HINT_TIMEOUT, deadline.queryTimeoutSeconds(chunkEm));
+            }
+            return query.fetch();
+        } finally {
+            chunkEm.close();
+        }
     }
-    private BooleanExpression ageGoe(Integer ageGoe) {
-        return ageGoe == null ? null : member.age.goe(ageGoe);
+
+    private JPAQuery<MemberTeamDto> teamDtoQuery(JPAQuery<?> query, List<Long> chunk) {
+        return query
+                .select(new QMemberTeamDto(
+                        member.id,
+                        member.username,
+                        member.age,
+                        team.id,
+                        team.name))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(member.id.in(chunk));
     }
-    private BooleanExpression ageLoe(Integer ageLoe) {
-        return ageLoe == null ? null : member.age.loe(ageLoe);
+
+    private MemberTeamDto toDto(Member m) {
+        Team t = m.getTeam();
+        return new MemberTeamDto(m.getId(), m.getUsername(), m.getAge(),
+                t == null ? null : t.getId(), t == null ? null : t.getName());
+    }
+
+    private long teamSize(Team t) {
+        Long count = queryFactory.select(member.count()).from(member).where(member.team.id.eq(t.getId())).fetchOne();
+        return count == null ? 0 : count;
     }
 
+    private static <T> T join(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("id 청크 조회 대기 중 인터럽트", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new CompletionException(e.getCause());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (chunkExecutor != null) {
+            chunkExecutor.shutdownNow();
+        }
+    }
 }
@@ -0,0 +1,299 @@
+package study.querydsl.repository;
+
+import com.mysema.commons.lang.CloseableIterator;
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQuery;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static study.querydsl.domain.QMember.member;
+import static study.querydsl.domain.QTeam.team;
+
+/**
+ * member 테이블을 id 범위로 나눠서 병렬로 읽는 스캐너 (findAll_Querydsl()을 대신하는 대량 조회용)
+ *
+ * - 파티션마다 별도의 EntityManager(=커넥션)와 read-only 트랜잭션에서 스트리밍 커서로 읽는다.
+ * - 동시에 여는 커넥션 수는 member.scan.max-connections 로 제한한다. 나머지 파티션은 커넥션이 반납될 때까지 기다린다.
+ * - 결과를 메모리에 모으지 않고 consumer/Stream으로 흘려보낸다. 소비가 느리면 읽기도 그만큼 느려진다. (pull 방식 backpressure)
+ */
+@Component
+public class MemberParallelScanner {
+
+    private final EntityManagerFactory emf;
+    private final Semaphore connections;
+    private final int fetchSize;
+
+    public MemberParallelScanner(EntityManagerFactory emf,
+                                 @Value("${member.scan.max-connections:4}") int maxConnections,
+                                 @Value("${member.scan.fetch-size:1000}") int fetchSize) {
+        this.emf = emf;
+        this.connections = new Semaphore(maxConnections, true);
+        this.fetchSize = fetchSize;
+    }
+
+    @Getter
+    @ToString
+    @RequiredArgsConstructor
+    public static class IdRange {
+        private final long from; //포함
+        private final long to;   //미포함
+    }
+
+    public List<IdRange> partitions(int count) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            Tuple bounds = new JPAQuery<>(em)
+                    .select(member.id.min(), member.id.max())
+                    .from(member)
+                    .fetchOne();
+            Long min = bounds == null ? null : bounds.get(member.id.min());
+            Long max = bounds == null ? null : bounds.get(member.id.max());
+            if (min == null || max == null) {
+                return Collections.emptyList();
+            }
+
+            long size = Math.max(1, (max - min + count) / count); //올림
+            List<IdRange> ranges = new ArrayList<>();
+            for (long from = min; from <= max; from += size) {
+                ranges.add(new IdRange(from, Math.min(from + size, max + 1)));
+            }
+            return ranges;
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * 파티션을 parallelism개의 쓰레드에서 나눠 읽는다. consumer는 여러 쓰레드에서 동시에 호출되므로 thread-safe 해야 한다.
+     * @return 읽은 행 수
+     */
+    public long scan(int partitions, int parallelism, Consumer<MemberTeamDto> consumer) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        AtomicLong rows = new AtomicLong();
+        try {
+            List<ForkJoinTask<?>> tasks = new ArrayList<>();
+            for (IdRange range : partitions(partitions)) {
+                tasks.add(pool.submit(() -> {
+                    try (Partition partition = open(range)) {
+                        while (partition.iterator.hasNext()) {
+                            consumer.accept(partition.iterator.next());
+                            rows.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            tasks.forEach(ForkJoinTask::join);
+            return rows.get();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * 파티션 단위로 split 되는 Stream. parallel()로 사용하면 파티션이 worker 쓰레드에 나눠진다.
+     * 열린 커넥션을 반납하려면 반드시 try-with-resources 로 닫아야 한다.
+     * 파티션은 그 파티션을 읽는 쓰레드가 닫는다. close()는 취소만 알리고 읽고 있는 worker가 빠져나올 때까지 기다린다.
+     */
+    public Stream<MemberTeamDto> stream(int partitions) {
+        StreamState state = new StreamState();
+        PartitionSpliterator spliterator = new PartitionSpliterator(partitions(partitions), 0, state);
+        return StreamSupport.stream(spliterator, false)
+                .onClose(state::cancelAndAwait);
+    }
+
+    private Partition open(IdRange range) {
+        try {
+            connections.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("커넥션 대기 중 인터럽트", e);
+        }
+
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            CloseableIterator<MemberTeamDto> iterator = new JPAQuery<>(em)
+                    .select(new QMemberTeamDto(
+                            member.id,
+                            member.username,
+                            member.age,
+                            team.id,
+                            team.name))
+                    .from(member)
+                    .leftJoin(member.team, team)
+                    .where(member.id.goe(range.getFrom()), member.id.lt(range.getTo()))
+                    .orderBy(member.id.asc())
+                    .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+                    .iterate(); //전체를 List로 받지 않고 forward-only 커서로 읽는다.
+            return new Partition(em, iterator);
+        } catch (RuntimeException e) {
+            em.close();
+            connections.release();
+            throw e;
+        }
+    }
+
+    private class Partition implements AutoCloseable {
+        private final EntityManager em;
+        private final CloseableIterator<MemberTeamDto> iterator;
+        private boolean closed;
+
+        Partition(EntityManager em, CloseableIterator<MemberTeamDto> iterator) {
+            this.em = em;
+            this.iterator = iterator;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                iterator.close(); //커서 닫기
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback(); //읽기만 했으므로 롤백으로 끝낸다.
+                }
+            } finally {
+                em.close();
+                connections.release();
+            }
+        }
+    }
+
+    /**
+     * stream() 하나가 공유하는 취소 신호와 읽는 중인 worker 수
+     */
+    private static class StreamState {
+        private final Set<Partition> opened = ConcurrentHashMap.newKeySet();
+        private volatile boolean cancelled;
+        private int active;
+
+        synchronized void enter() {
+            active++;
+        }
+
+        synchronized void exit() {
+            if (--active == 0) {
+                notifyAll();
+            }
+        }
+
+        /**
+         * 취소를 알리고 tryAdvance 안에 있는 worker가 모두 빠져나올 때까지 기다린다.
+         * 그 뒤에도 열려 있는 파티션은 short-circuit(findFirst 등)이나 예외로 더 이상 아무도 읽지 않는 것만 남으므로 여기서 닫는다.
+         */
+        void cancelAndAwait() {
+            cancelled = true;
+            boolean interrupted = false;
+            synchronized (this) {
+                while (active > 0) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        interrupted = true; //커넥션을 반납하기 전에는 빠져나가지 않는다.
+                    }
+                }
+            }
+            try {
+                opened.forEach(Partition::close);
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private class PartitionSpliterator implements Spliterator<MemberTeamDto> {
+
+        private final List<IdRange> ranges;
+        private final StreamState state;
+        private int index;
+        private int end;
+        private Partition current;
+        private Iterator<MemberTeamDto> iterator;
+
+        PartitionSpliterator(List<IdRange> ranges, int index, StreamState state) {
+            this(ranges, index, ranges.size(), state);
+        }
+
+        PartitionSpliterator(List<IdRange> ranges, int index, int end, StreamState state) {
+            this.ranges = ranges;
+            this.index = index;
+            this.end = end;
+            this.state = state;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super MemberTeamDto> action) {
+            state.enter(); //cancelled 확인보다 먼저 들어와야 close()가 이 쓰레드를 기다린다.
+            try {
+                while (true) {
+                    if (state.cancelled) {
+                        closeCurrent();
+                        return false;
+                    }
+                    if (iterator != null && iterator.hasNext()) {
+                        action.accept(iterator.next());
+                        return true;
+                    }
+                    closeCurrent();
+                    if (index >= end) {
+                        return false;
+                    }
+                    current = open(ranges.get(index++)); //다음 파티션은 필요해질 때 연다.
+                    state.opened.add(current);
+                    iterator = current.iterator;
+                }
+            } finally {
+                state.exit();
+            }
+        }
+
+        @Override
+        public Spliterator<MemberTeamDto> trySplit() {
+            if (current != null || end - index < 2) {
+                return null;
+            }
+            int mid = index + (end - index) / 2;
+            PartitionSpliterator prefix = new PartitionSpliterator(ranges, index, mid, state);
+            index = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return current == null && index >= end ? 0 : Long.MAX_VALUE;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL;
+        }
+
+        private void closeCurrent() {
+            if (current != null) {
+                current.close();
+                state.opened.remove(current);
+                current = null;
+                iterator = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package study.querydsl.repository;
+
+import com.querydsl.sql.Configuration;
+import com.querydsl.sql.H2Templates;
+import com.querydsl.sql.SQLBindings;
+import com.querydsl.sql.SQLQuery;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Row;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.search.ConditionPredicates;
+
+import java.util.List;
+import java.util.Map;
+
+import static study.querydsl.domain.sql.SMember.member;
+import static study.querydsl.domain.sql.STeam.team;
+
+/**
+ * search(condition) 의 논블로킹 버전
+ * - 조건 -> Predicate 는 MemberRepositoryImpl 과 같은 ConditionPredicates 를 SQL 메타모델(SMember, STeam)로 옮겨서 쓴다.
+ * - querydsl-sql 로 SQL 문자열과 바인딩만 만들고, 실행은 R2DBC(DatabaseClient)가 한다.
+ * - 행은 구독자가 요청한 만큼만 내려보낸다. 한 번에 당겨오는 양은 member.reactive.prefetch 로 제한한다.
+ */
+@Repository
+public class MemberReactiveRepository {
+
+    private static final ConditionPredicates<MemberSearchCondition> SEARCH = ConditionPredicates
+            .of(MemberSearchCondition.class, study.querydsl.domain.QMember.member, study.querydsl.domain.QTeam.team)
+            .remap(Map.of(
+                    "member.username", member.username,
+                    "team.name", team.name,
+                    "member.age", member.age));
+    private static final Configuration SQL = new Configuration(H2Templates.builder().build());
+
+    private final DatabaseClient client;
+    private final int prefetch;
+
+    public MemberReactiveRepository(ConnectionFactory connectionFactory,
+                                    @Value("${member.reactive.prefetch:256}") int prefetch) {
+        this.client = DatabaseClient.create(connectionFactory);
+        this.prefetch = prefetch;
+    }
+
+    public Flux<MemberTeamDto> search(MemberSearchCondition condition) {
+        return rows(condition)
+                .limitRate(prefetch); //구독자가 Long.MAX_VALUE 를 요청해도 prefetch 단위로 나눠 당긴다.
+    }
+
+    //limitRate 를 걸기 전의 드라이버 행 스트림
+    Flux<MemberTeamDto> rows(MemberSearchCondition condition) {
+        SQLBindings sql = new SQLQuery<Void>(SQL)
+                .select(member.memberId, member.username, member.age, team.teamId, team.name)
+                .from(member)
+                .leftJoin(team).on(team.teamId.eq(member.teamId))
+                .where(SEARCH.predicates(condition))
+                .getSQL();
+
+        DatabaseClient.GenericExecuteSpec spec = client.sql(indexedMarkers(sql.getSQL()));
+        List<Object> bindings = sql.getNullFriendlyBindings();
+        for (int i = 0; i < bindings.size(); i++) {
+            Object value = bindings.get(i);
+            spec = value == null ? spec.bindNull(i, Object.class) : spec.bind(i, value);
+        }
+        return spec.map(this::toDto)
+                .all();
+    }
+
+    private MemberTeamDto toDto(Row row) {
+        return new MemberTeamDto(
+                row.get(0, Long.class),
+                row.get(1, String.class),
+                row.get(2, Integer.class),
+                row.get(3, Long.class),
+                row.get(4, String.class));
+    }
+
+    //querydsl-sql 은 ? 를, R2DBC 는 $1, $2 ... 를 쓴다. (리터럴은 바인딩으로만 넘기므로 SQL 안에 다른 ? 는 없다)
+    static String indexedMarkers(String sql) {
+        StringBuilder sb = new StringBuilder(sql.length() + 8);
+        int index = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '?') {
+                sb.append('$').append(++index);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -1,5 +1,7 @@
 package study.querydsl.repository;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import study.querydsl.domain.Member;
 
@@ -11,4 +13,9 @@ public interface MemberRepository extends JpaRepository<Member, Long>, MemberRep
     //select m from Member m where m.username = ?
     List<Member> findByUsername(String username);
 
+    //Team.members를 초기화하지 않고 팀의 회원을 조회할 때 사용 (큰 팀은 페이징으로 나눠서)
+    Slice<Member> findByTeamId(Long teamId, Pageable pageable);
+
+    long countByTeamId(Long teamId);
+
 }
@@ -1,10 +1,35 @@
 package study.querydsl.repository;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import study.querydsl.dto.MemberFacet;
+import study.querydsl.dto.MemberFacetResult;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 
 import java.util.List;
+import java.util.Map;
 
 public interface MemberRepositoryCustom {
     List<MemberTeamDto> search(MemberSearchCondition condition);
+
+    //member_team_view 에서 조인 없이 검색 (뷰가 꺼져 있거나 재구축 중이면 search(condition) 과 같다)
+    List<MemberTeamDto> searchView(MemberSearchCondition condition);
+
+    //정렬 + offset/limit을 DB로 내려보낸다. (top-N)
+    List<MemberTeamDto> search(MemberSearchCondition condition, Pageable pageable);
+
+    //요청한 필드만 select -> 필드명:값 맵 (team 필드/조건이 없으면 team 조인 생략)
+    List<Map<String, Object>> search(MemberSearchCondition condition, List<MemberField> fields);
+
+    //조건에 맞는 정확한 회원 수 (count 쿼리)
+    long searchCount(MemberSearchCondition condition);
+
+    //팀별로 sort 순서 상위 n명 (팀이 없는 회원은 제외)
+    List<MemberTeamDto> topNPerTeam(MemberSearchCondition condition, int n, Sort sort);
+
+    List<MemberTeamDto> topNPerTeam(MemberSearchCondition condition, int n, Sort sort, TopNStrategy strategy);
+
+    //검색 결과 + 요청한 facet 카운트 (facet은 모두 group by 쿼리 한 번으로 계산)
+    MemberFacetResult searchWithFacets(MemberSearchCondition condition, Pageable pageable, MemberFacet... facets);
 }
\ No newline at end of file
@@ -1,29 +1,127 @@
 package study.querydsl.repository;
 
+import com.mysema.commons.lang.CloseableIterator;
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Expression;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.NumberExpression;
+import com.querydsl.core.types.dsl.StringPath;
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.dialect.MySQL8Dialect;
+import org.hibernate.dialect.Oracle8iDialect;
+import org.hibernate.dialect.PostgreSQL9Dialect;
+import org.hibernate.dialect.SQLServer2005Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.deadline.Deadline;
+import study.querydsl.deadline.DeadlineQueryFactory;
+import study.querydsl.domain.QMember;
+import study.querydsl.dto.MemberFacet;
+import study.querydsl.dto.MemberFacetResult;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.search.ConditionPredicates;
+import study.querydsl.view.MemberTeamViewMaintainer;
 
 import javax.persistence.EntityManager;
-import java.util.List;
+import javax.persistence.Query;
+import java.util.*;
+import java.util.stream.Collectors;
 
 import static org.aspectj.util.LangUtil.isEmpty;
+import static study.querydsl.domain.QArchivedMember.archivedMember;
 import static study.querydsl.domain.QMember.member;
+import static study.querydsl.domain.QMemberTeamView.memberTeamView;
 import static study.querydsl.domain.QTeam.team;
 
 public class MemberRepositoryImpl implements MemberRepositoryCustom {
 
+    private static final ConditionPredicates<MemberSearchCondition> SEARCH = ConditionPredicates.of(MemberSearchCondition.class, member, team);
+    //같은 조건을 member_team_view 컬럼에 적용
+    private static final ConditionPredicates<MemberSearchCondition> VIEW_SEARCH = SEARCH.remap(Map.of(
+            "member.username", memberTeamView.username,
+            "team.name", memberTeamView.teamName,
+            "member.age", memberTeamView.age));
+    //보관 계층(member_archive)은 팀을 id 로만 갖고 있어서 team 과 id 로 조인한다.
+    private static final ConditionPredicates<MemberSearchCondition> ARCHIVE_SEARCH = SEARCH.remap(Map.of(
+            "member.username", archivedMember.username,
+            "team.name", team.name,
+            "member.age", archivedMember.age));
+
+    private final EntityManager em;
     private final JPAQueryFactory queryFactory;
+    private final ObjectProvider<MemberTeamViewMaintainer> viewMaintainer; //member.view.enabled=true 일 때만 있다.
+    private final TransactionTemplate readOnlyTransaction; //커서 두 개를 같은 커넥션에서 열어 두기 위해
 
-    public MemberRepositoryImpl(EntityManager em) {
-        this.queryFactory = new JPAQueryFactory(em);
+    public MemberRepositoryImpl(EntityManager em, ObjectProvider<MemberTeamViewMaintainer> viewMaintainer,
+                                PlatformTransactionManager txManager) {
+        this.em = em;
+        this.queryFactory = new DeadlineQueryFactory(em); //요청 시간 예산 -> 쿼리 타임아웃
+        this.viewMaintainer = viewMaintainer;
+        this.readOnlyTransaction = new TransactionTemplate(txManager);
+        this.readOnlyTransaction.setReadOnly(true);
     }
 
     @Override
     //회원명, 팀명, 나이(ageGoe, ageLoe)
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        if (condition.isIncludeArchive()) {
+            return searchWithArchive(condition);
+        }
+        return searchQuery(condition).fetch(); //기본은 hot 계층(member)만
+    }
+
+    //member 와 member_archive 를 각각 id 순 커서로 읽으면서 병합한다. 어느 쪽도 통째로 올려서 정렬하지 않는다.
+    private List<MemberTeamDto> searchWithArchive(MemberSearchCondition condition) {
+        return readOnlyTransaction.execute(status -> {
+            List<MemberTeamDto> result = new ArrayList<>();
+            try (CloseableIterator<MemberTeamDto> hot = searchQuery(condition).orderBy(member.id.asc()).iterate();
+                 CloseableIterator<MemberTeamDto> cold = archiveQuery(condition).iterate()) {
+                MemberTeamDto h = hot.hasNext() ? hot.next() : null;
+                MemberTeamDto c = cold.hasNext() ? cold.next() : null;
+                while (h != null || c != null) {
+                    if (c == null || (h != null && h.getMemberId() <= c.getMemberId())) {
+                        if (c != null && c.getMemberId().equals(h.getMemberId())) {
+                            c = cold.hasNext() ? cold.next() : null; //옮기는 중인 청크는 양쪽에 보일 수 있다 -> hot 우선
+                        }
+                        result.add(h);
+                        h = hot.hasNext() ? hot.next() : null;
+                    } else {
+                        result.add(c);
+                        c = cold.hasNext() ? cold.next() : null;
+                    }
+                }
+            }
+            return result;
+        });
+    }
+
+    private JPAQuery<MemberTeamDto> archiveQuery(MemberSearchCondition condition) {
+        return queryFactory
+                .select(new QMemberTeamDto(
+                        archivedMember.memberId,
+                        archivedMember.username,
+                        archivedMember.age,
+                        team.id,
+                        team.name))
+                .from(archivedMember)
+                .leftJoin(team).on(team.id.eq(archivedMember.teamId))
+                .where(ARCHIVE_SEARCH.predicates(condition))
+                .orderBy(archivedMember.memberId.asc());
+    }
+
+    //실행하지 않고 쿼리만 만든다. (QueryPlanPrewarmer 가 HQL 플랜을 미리 컴파일할 때 같은 쿼리를 쓰도록)
+    JPAQuery<MemberTeamDto> searchQuery(MemberSearchCondition condition) {
         return queryFactory
                 .select(new QMemberTeamDto(
                         member.id,
@@ -33,26 +131,326 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom {
                         team.name))
                 .from(member)
                 .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()))
+                .where(SEARCH.predicates(condition));
+    }
+
+    @Override
+    public List<MemberTeamDto> searchView(MemberSearchCondition condition) {
+        MemberTeamViewMaintainer maintainer = viewMaintainer.getIfAvailable();
+        if (maintainer == null || !maintainer.isServing()) {
+            return search(condition);
+        }
+        return queryFactory
+                .select(new QMemberTeamDto(
+                        memberTeamView.memberId,
+                        memberTeamView.username,
+                        memberTeamView.age,
+                        memberTeamView.teamId,
+                        memberTeamView.teamName))
+                .from(memberTeamView)
+                .where(VIEW_SEARCH.predicates(condition))
+                .fetch();
+    }
+
+    @Override
+    public List<MemberTeamDto> search(MemberSearchCondition condition, Pageable pageable) {
+        JPAQuery<MemberTeamDto> query = queryFactory
+                .select(new QMemberTeamDto(
+                        member.id,
+                        member.username,
+                        member.age,
+                        team.id,
+                        team.name))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(SEARCH.predicates(condition))
+                .orderBy(MemberSortSupport.toOrderSpecifiers(pageable.getSort()));
+
+        if (pageable.isPaged()) {
+            query.offset(pageable.getOffset())
+                    .limit(pageable.getPageSize());
+        }
+        return query.fetch();
+    }
+
+    @Override
+    public List<Map<String, Object>> search(MemberSearchCondition condition, List<MemberField> fields) {
+        if (fields.isEmpty()) {
+            throw new InvalidFieldException("fields 가 비어 있습니다.");
+        }
+        List<MemberField> selected = fields.stream().distinct().collect(Collectors.toList());
+        Expression<?>[] paths = selected.stream().map(MemberField::getPath).toArray(Expression[]::new);
+
+        JPAQuery<Tuple> query = queryFactory
+                .select(paths)
+                .from(member);
+        //teamName 을 고르거나 teamName 으로 거를 때만 조인 (teamId 는 member.team_id 로 충분)
+        if (selected.stream().anyMatch(MemberField::isTeamJoin) || SEARCH.uses(condition, team)) {
+            query.leftJoin(member.team, team);
+        }
+        List<Tuple> rows = query
+                .where(SEARCH.predicates(condition))
+                .fetch();
+
+        List<Map<String, Object>> result = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            Map<String, Object> sparse = new LinkedHashMap<>(selected.size() * 2);
+            for (MemberField field : selected) {
+                sparse.put(field.getProperty(), row.get(field.getPath()));
+            }
+            result.add(sparse);
+        }
+        return result;
+    }
+
+    @Override
+    public long searchCount(MemberSearchCondition condition) {
+        Long count = queryFactory
+                .select(member.count())
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(SEARCH.predicates(condition))
+                .fetchOne();
+        return count == null ? 0 : count;
+    }
+
+    @Override
+    public List<MemberTeamDto> topNPerTeam(MemberSearchCondition condition, int n, Sort sort) {
+        return topNPerTeam(condition, n, sort, TopNStrategy.AUTO);
+    }
+
+    @Override
+    public List<MemberTeamDto> topNPerTeam(MemberSearchCondition condition, int n, Sort sort, TopNStrategy strategy) {
+        if (n < 1) {
+            throw new IllegalArgumentException("n은 1 이상이어야 합니다: " + n);
+        }
+        if (strategy == TopNStrategy.AUTO) {
+            strategy = supportsWindowFunction() ? TopNStrategy.WINDOW : TopNStrategy.CORRELATED;
+        }
+        return strategy == TopNStrategy.WINDOW
+                ? topNPerTeamByWindow(condition, n, sort)
+                : topNPerTeamByCorrelatedSubQuery(condition, n, sort);
+    }
+
+    /**
+     * JPQL(Hibernate 5)은 from 절 서브쿼리를 지원하지 않아서 row_number() 결과로 걸러낼 수 없다.
+     * 그래서 윈도우 함수 버전은 네이티브 쿼리로 작성하고, 조건은 search()와 같은 규칙으로 붙인다.
+     */
+    @SuppressWarnings("unchecked")
+    private List<MemberTeamDto> topNPerTeamByWindow(MemberSearchCondition condition, int n, Sort sort) {
+        List<String> where = new ArrayList<>();
+        List<Object> params = new ArrayList<>();
+        if (!isEmpty(condition.getUsername())) {
+            params.add(condition.getUsername());
+            where.add("m.username = ?" + params.size());
+        }
+        if (!isEmpty(condition.getTeamName())) {
+            params.add(condition.getTeamName());
+            where.add("t.name = ?" + params.size());
+        }
+        if (condition.getAgeGoe() != null) {
+            params.add(condition.getAgeGoe());
+            where.add("m.age >= ?" + params.size());
+        }
+        if (condition.getAgeLoe() != null) {
+            params.add(condition.getAgeLoe());
+            where.add("m.age <= ?" + params.size());
+        }
+        params.add(n);
+
+        String sql = "select member_id, username, age, team_id, team_name from (" +
+                " select m.member_id, m.username, m.age, t.team_id, t.name as team_name," +
+                " row_number() over (partition by m.team_id order by " + windowOrderBy(sort) + ") as rn" +
+                " from member m join team t on m.team_id = t.team_id" +
+                (where.isEmpty() ? "" : " where " + String.join(" and ", where)) +
+                " ) ranked where rn <= ?" + params.size() +
+                " order by team_id, rn";
+
+        Query query = Deadline.applyTo(em.createNativeQuery(sql), em);
+        for (int i = 0; i < params.size(); i++) {
+            query.setParameter(i + 1, params.get(i));
+        }
+
+        List<Object[]> rows = query.getResultList();
+        return rows.stream()
+                .map(row -> new MemberTeamDto(
+                        ((Number) row[0]).longValue(),
+                        (String) row[1],
+                        ((Number) row[2]).intValue(),
+                        ((Number) row[3]).longValue(),
+                        (String) row[4]))
+                .collect(Collectors.toList());
+    }
+
+    private String windowOrderBy(Sort sort) {
+        List<String> orders = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            MemberSortKey key = MemberSortKey.from(order.getProperty()); //네이티브 쿼리라 화이트리스트 컬럼만 들어가야 한다.
+            //null 위치를 DB 기본값에 맡기지 않고 rankedBefore와 맞춘다.
+            //MySQL, SQL Server는 NULLS FIRST/LAST 문법이 없어서 null 여부를 앞 정렬 키로 둔다.
+            orders.add("case when " + key.getColumn() + " is null then " + (nullsFirst(order) ? "0 else 1" : "1 else 0") + " end");
+            orders.add(key.getColumn() + (order.isAscending() ? " asc" : " desc"));
+        }
+        orders.add("m.member_id asc"); //동점일 때 순서 고정
+        return String.join(", ", orders);
+    }
+
+    /**
+     * 같은 팀에서 나보다 앞 순서인 회원이 n명 미만이면 top-N에 포함된다.
+     * 윈도우 함수가 없는 DB용 fallback. null 순서는 윈도우 함수 버전과 같다. (nullsFirst 참고)
+     */
+    private List<MemberTeamDto> topNPerTeamByCorrelatedSubQuery(MemberSearchCondition condition, int n, Sort sort) {
+        QMember memberSub = new QMember("memberSub");
+
+        return queryFactory
+                .select(new QMemberTeamDto(
+                        member.id,
+                        member.username,
+                        member.age,
+                        team.id,
+                        team.name))
+                .from(member)
+                .join(member.team, team)
+                .where(SEARCH.predicates(condition))
+                .where(JPAExpressions
+                                .select(memberSub.count())
+                                .from(memberSub)
+                                .where(memberSub.team.eq(member.team), //서브쿼리는 별칭(memberSub)이 달라서 직접 만든다.
+                                        rankedBefore(memberSub, sort),
+                                        isEmpty(condition.getUsername()) ? null : memberSub.username.eq(condition.getUsername()),
+                                        condition.getAgeGoe() == null ? null : memberSub.age.goe(condition.getAgeGoe()),
+                                        condition.getAgeLoe() == null ? null : memberSub.age.loe(condition.getAgeLoe()))
+                                .lt((long) n))
+                .orderBy(team.id.asc())
+                .orderBy(MemberSortSupport.toOrderSpecifiers(withExplicitNulls(sort)))
                 .fetch();
     }
 
-    private BooleanExpression usernameEq(String username) {
-        return isEmpty(username) ? null : member.username.eq(username);
+    //(k1 앞) or (k1 같고 k2 앞) or ... or (모두 같고 id 앞)
+    private BooleanExpression rankedBefore(QMember memberSub, Sort sort) {
+        BooleanExpression result = null;
+        BooleanExpression sameSoFar = null;
+        for (Sort.Order order : sort) {
+            MemberSortKey key = MemberSortKey.from(order.getProperty());
+            if (key == MemberSortKey.TEAM_NAME) { //같은 팀 안에서는 항상 같다.
+                continue;
+            }
+            BooleanExpression before;
+            BooleanExpression same;
+            if (key == MemberSortKey.USERNAME) { //username은 null일 수 있다. null끼리는 동점, null과 값은 nullsFirst 기준
+                StringPath sub = memberSub.username;
+                StringPath me = member.username;
+                BooleanExpression valueBefore = order.isAscending() ? sub.lt(me) : sub.gt(me);
+                BooleanExpression nullBefore = nullsFirst(order)
+                        ? sub.isNull().and(me.isNotNull())
+                        : sub.isNotNull().and(me.isNull());
+                before = valueBefore.or(nullBefore);
+                same = sub.eq(me).or(sub.isNull().and(me.isNull()));
+            } else { //age는 int라 null이 없다.
+                before = order.isAscending() ? memberSub.age.lt(member.age) : memberSub.age.gt(member.age);
+                same = memberSub.age.eq(member.age);
+            }
+
+            result = or(result, and(sameSoFar, before));
+            sameSoFar = and(sameSoFar, same);
+        }
+        return or(result, and(sameSoFar, memberSub.id.lt(member.id)));
+    }
+
+    /**
+     * null 위치는 DB마다 기본값이 달라서(H2/MySQL은 작은 값, PostgreSQL/Oracle은 큰 값) 두 전략의 결과가 어긋날 수 있다.
+     * NATIVE는 방향과 상관없이 nulls last로 고정한다.
+     */
+    private static boolean nullsFirst(Sort.Order order) {
+        return order.getNullHandling() == Sort.NullHandling.NULLS_FIRST;
+    }
+
+    private static Sort withExplicitNulls(Sort sort) {
+        List<Sort.Order> orders = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            orders.add(nullsFirst(order) ? order.nullsFirst() : order.nullsLast());
+        }
+        return Sort.by(orders);
+    }
+
+    private BooleanExpression and(BooleanExpression left, BooleanExpression right) {
+        return left == null ? right : left.and(right);
+    }
+
+    private BooleanExpression or(BooleanExpression left, BooleanExpression right) {
+        return left == null ? right : left.or(right);
     }
 
-    private BooleanExpression teamNameEq(String teamName) {
-        return isEmpty(teamName) ? null : team.name.eq(teamName);
+    @Override
+    public MemberFacetResult searchWithFacets(MemberSearchCondition condition, Pageable pageable, MemberFacet... facets) {
+        List<MemberTeamDto> content = search(condition, pageable);
+        Set<MemberFacet> requested = facets.length == 0 ? EnumSet.noneOf(MemberFacet.class) : EnumSet.copyOf(Arrays.asList(facets));
+        return new MemberFacetResult(content, facetCounts(condition, requested));
     }
 
-    private BooleanExpression ageGoe(Integer ageGoe) {
-        return ageGoe == null ? null : member.age.goe(ageGoe);
+    /**
+     * 요청한 facet 전부를 group by 한 번으로 센 뒤(team.name, 나이대 조합별 count) 자바에서 facet별로 합친다.
+     * 나이대는 CaseBuilder 대신 리터럴 템플릿을 사용한다. CaseBuilder의 then() 값은 파라미터로 바인딩되는데,
+     * select 절과 group by 절의 파라미터가 서로 다른 표현식으로 취급되어 group by 오류가 나기 때문이다.
+     * 나눗셈((age / 10) * 10)은 MySQL 처럼 / 가 소수를 돌려주는 DB 에서 틀리므로 mod 로 내림한다.
+     */
+    private Map<MemberFacet, Map<String, Long>> facetCounts(MemberSearchCondition condition, Set<MemberFacet> facets) {
+        Map<MemberFacet, Map<String, Long>> result = new EnumMap<>(MemberFacet.class);
+        if (facets.isEmpty()) {
+            return result;
+        }
+
+        NumberExpression<Integer> ageDecade = Expressions.numberTemplate(Integer.class, "{0} - mod({0}, 10)", member.age);
+        List<Expression<?>> groups = new ArrayList<>();
+        if (facets.contains(MemberFacet.TEAM)) {
+            groups.add(team.name);
+        }
+        if (facets.contains(MemberFacet.AGE_DECADE)) {
+            groups.add(ageDecade);
+        }
+
+        List<Expression<?>> select = new ArrayList<>(groups);
+        select.add(member.count());
+
+        List<Tuple> rows = queryFactory
+                .select(select.toArray(new Expression<?>[0]))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(SEARCH.predicates(condition))
+                .groupBy(groups.toArray(new Expression<?>[0]))
+                .fetch();
+
+        facets.forEach(facet -> result.put(facet, new TreeMap<>()));
+        Map<Integer, Long> decades = new TreeMap<>(); //문자열로 정렬하면 "100~109" 가 "20~29" 앞에 온다 -> 하한 숫자로 정렬
+        for (Tuple row : rows) {
+            int column = 0;
+            long count = row.get(groups.size(), Long.class);
+            if (facets.contains(MemberFacet.TEAM)) {
+                String teamName = row.get(column++, String.class);
+                result.get(MemberFacet.TEAM).merge(teamName == null ? "(none)" : teamName, count, Long::sum);
+            }
+            if (facets.contains(MemberFacet.AGE_DECADE)) {
+                decades.merge(row.get(column, Number.class).intValue(), count, Long::sum);
+            }
+        }
+        if (facets.contains(MemberFacet.AGE_DECADE)) {
+            Map<String, Long> labels = new LinkedHashMap<>();
+            decades.forEach((decade, count) -> labels.put(decade + "~" + (decade + 9), count));
+            result.put(MemberFacet.AGE_DECADE, labels);
+        }
+        return result;
     }
 
-    private BooleanExpression ageLoe(Integer ageLoe) {
-        return ageLoe == null ? null : member.age.loe(ageLoe);
+    private boolean supportsWindowFunction() {
+        Dialect dialect = em.getEntityManagerFactory()
+                .unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices()
+                .getDialect();
+        return dialect instanceof H2Dialect
+                || dialect instanceof PostgreSQL9Dialect //윈도우 함수는 8.4부터, 8.2/8.3 방언은 제외
+                || dialect instanceof MySQL8Dialect
+                || dialect instanceof Oracle8iDialect
+                || dialect instanceof SQLServer2005Dialect;
     }
+
 }
\ No newline at end of file
@@ -0,0 +1,40 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.types.dsl.ComparableExpressionBase;
+import lombok.Getter;
+
+import java.util.Arrays;
+
+import static study.querydsl.domain.QMember.member;
+import static study.querydsl.domain.QTeam.team;
+
+/**
+ * 정렬에 사용할 수 있는 경로 화이트리스트
+ * 요청으로 들어온 property 문자열을 그대로 쿼리에 넣지 않고 반드시 여기를 거친다.
+ */
+@Getter
+public enum MemberSortKey {
+
+    USERNAME("username", member.username, "m.username", true),
+    AGE("age", member.age, "m.age", true),
+    TEAM_NAME("teamName", team.name, "t.name", false); //조인된 테이블 컬럼이라 member 인덱스로 top-N을 만들 수 없다.
+
+    private final String property;
+    private final ComparableExpressionBase<?> path;
+    private final String column; //네이티브 쿼리용 컬럼 (member m, team t 별칭 기준)
+    private final boolean indexed; //Member @Table(indexes)에 선언된 컬럼인지
+
+    MemberSortKey(String property, ComparableExpressionBase<?> path, String column, boolean indexed) {
+        this.property = property;
+        this.path = path;
+        this.column = column;
+        this.indexed = indexed;
+    }
+
+    public static MemberSortKey from(String property) {
+        return Arrays.stream(values())
+                .filter(key -> key.property.equals(property))
+                .findFirst()
+                .orElseThrow(() -> new InvalidSortException("정렬할 수 없는 필드입니다: " + property));
+    }
+}
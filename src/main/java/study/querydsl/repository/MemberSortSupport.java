@@ -0,0 +1,79 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.types.OrderSpecifier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static study.querydsl.domain.QMember.member;
+
+/**
+ * Spring Sort -> Querydsl OrderSpecifier 변환
+ */
+@Slf4j
+public final class MemberSortSupport {
+
+    private static final Set<String> warnedSorts = ConcurrentHashMap.newKeySet(); //같은 경고를 요청마다 찍지 않기 위함
+
+    private MemberSortSupport() {
+    }
+
+    public static OrderSpecifier<?>[] toOrderSpecifiers(Sort sort) {
+        List<OrderSpecifier<?>> orders = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            MemberSortKey key = MemberSortKey.from(order.getProperty());
+            orders.add(toOrderSpecifier(key, order));
+        }
+        orders.add(member.id.asc()); //페이징 결과가 매번 같도록 마지막에 pk로 순서를 고정한다.
+
+        warnIfNotIndexed(sort);
+        return orders.toArray(new OrderSpecifier[0]);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static OrderSpecifier<?> toOrderSpecifier(MemberSortKey key, Sort.Order order) {
+        com.querydsl.core.types.Order direction = order.isAscending()
+                ? com.querydsl.core.types.Order.ASC
+                : com.querydsl.core.types.Order.DESC;
+        return new OrderSpecifier(direction, key.getPath(), toNullHandling(order.getNullHandling()));
+    }
+
+    private static OrderSpecifier.NullHandling toNullHandling(Sort.NullHandling nullHandling) {
+        switch (nullHandling) {
+            case NULLS_FIRST:
+                return OrderSpecifier.NullHandling.NullsFirst;
+            case NULLS_LAST:
+                return OrderSpecifier.NullHandling.NullsLast;
+            default:
+                return OrderSpecifier.NullHandling.Default;
+        }
+    }
+
+    /**
+     * 인덱스는 member 단일 컬럼(username, age)에만 있기 때문에
+     * 조인 컬럼 정렬이나 두 개 이상의 키 정렬은 limit이 있어도 전체를 읽고 정렬(filesort)하게 된다.
+     */
+    private static void warnIfNotIndexed(Sort sort) {
+        if (sort.isUnsorted()) {
+            return;
+        }
+
+        List<MemberSortKey> keys = new ArrayList<>();
+        sort.forEach(order -> keys.add(MemberSortKey.from(order.getProperty())));
+
+        String reason = null;
+        if (!keys.get(0).isIndexed()) {
+            reason = keys.get(0).getProperty() + " 컬럼에 인덱스가 없음";
+        } else if (keys.size() > 1) {
+            reason = "복합 인덱스가 없어 첫 번째 키까지만 인덱스를 사용함";
+        }
+
+        if (reason != null && warnedSorts.add(sort.toString())) {
+            log.warn("인덱스를 사용할 수 없는 정렬 요청 sort=[{}] reason={}", sort, reason);
+        }
+    }
+}
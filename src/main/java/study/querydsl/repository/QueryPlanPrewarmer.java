@@ -0,0 +1,66 @@
+package study.querydsl.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 기동 후(readiness 이후) 백그라운드에서 MemberSearchCondition 16가지 조합의 검색 쿼리를 미리 컴파일한다.
+ * createQuery() 까지만 해서 Querydsl 직렬화 + Hibernate HQL -> SQL 플랜 캐시만 채우고 DB 에는 쿼리를 보내지 않는다.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "member.prewarm.enabled", havingValue = "true")
+public class QueryPlanPrewarmer {
+
+    private final MemberRepositoryImpl memberRepositoryImpl;
+    private final TransactionTemplate readOnlyTx;
+
+    public QueryPlanPrewarmer(MemberRepositoryImpl memberRepositoryImpl, PlatformTransactionManager txManager) {
+        this.memberRepositoryImpl = memberRepositoryImpl;
+        this.readOnlyTx = new TransactionTemplate(txManager);
+        this.readOnlyTx.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void prewarmInBackground() {
+        Thread thread = new Thread(this::prewarm, "query-plan-prewarm");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public int prewarm() {
+        long start = System.nanoTime();
+        List<MemberSearchCondition> shapes = conditionShapes();
+        try {
+            readOnlyTx.executeWithoutResult(status ->
+                    shapes.forEach(condition -> memberRepositoryImpl.searchQuery(condition).createQuery()));
+            log.info("검색 쿼리 플랜 prewarm 완료 shapes={} {}ms", shapes.size(), (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.warn("검색 쿼리 플랜 prewarm 실패", e); //prewarm 은 실패해도 서비스에는 영향이 없다.
+        }
+        return shapes.size();
+    }
+
+    //값은 플랜 캐시 키(HQL)에 들어가지 않으므로 조건이 있다/없다만 의미가 있다.
+    public static List<MemberSearchCondition> conditionShapes() {
+        List<MemberSearchCondition> shapes = new ArrayList<>(16);
+        for (int shape = 0; shape < 16; shape++) {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setUsername((shape & 1) != 0 ? "prewarm" : null);
+            condition.setTeamName((shape & 2) != 0 ? "prewarm" : null);
+            condition.setAgeGoe((shape & 4) != 0 ? 0 : null);
+            condition.setAgeLoe((shape & 8) != 0 ? 0 : null);
+            shapes.add(condition);
+        }
+        return shapes;
+    }
+}
@@ -0,0 +1,211 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.JoinExpression;
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.types.*;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.jpa.impl.JPAQuery;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * JPAExpressions 서브쿼리를 2단계 쿼리로 바꿔주는 유틸리티
+ *
+ * 1. 상관관계가 없는 집계 서브쿼리 (member.age.eq(select(memberSub.age.max()).from(memberSub)))
+ *    -> 서브쿼리를 먼저 한 번 실행해서 상수로 치환 (ttl 동안 결과 캐시)
+ * 2. 상관관계가 없는 IN 서브쿼리 (member.age.in(select(memberSub.age).from(memberSub)...))
+ *    -> 값 목록을 먼저 조회해서 IN 리스트로 치환 (maxInListSize 이하일 때만)
+ *
+ * 바깥 쿼리를 참조하는(상관) 서브쿼리는 결과가 행마다 달라서 그대로 둔다.
+ * 어떤 변환을 했는지는 RewriteResult.applied에 남는다.
+ */
+@Component
+public class SubQueryRewriter {
+
+    private final EntityManager em;
+    private final int maxInListSize;
+    private final long scalarCacheTtlMillis;
+
+    private final Map<String, CachedScalar> scalarCache = new ConcurrentHashMap<>();
+
+    public SubQueryRewriter(EntityManager em,
+                            @Value("${querydsl.rewrite.max-in-list-size:1000}") int maxInListSize,
+                            @Value("${querydsl.rewrite.scalar-cache-ttl-ms:0}") long scalarCacheTtlMillis) { //0이면 캐시하지 않음
+        this.em = em;
+        this.maxInListSize = maxInListSize;
+        this.scalarCacheTtlMillis = scalarCacheTtlMillis;
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class RewriteResult {
+        private final Predicate predicate;
+        private final List<String> applied;
+    }
+
+    @RequiredArgsConstructor
+    private static class CachedScalar {
+        private final Object value;
+        private final long expiresAt;
+    }
+
+    public RewriteResult rewrite(Predicate predicate) {
+        List<String> applied = new ArrayList<>();
+        Predicate rewritten = predicate == null ? null : (Predicate) rewrite(predicate, applied);
+        return new RewriteResult(rewritten, applied);
+    }
+
+    public void invalidate() {
+        scalarCache.clear();
+    }
+
+    private Expression<?> rewrite(Expression<?> expr, List<String> applied) {
+        if (!(expr instanceof Operation)) {
+            return expr;
+        }
+
+        Operation<?> operation = (Operation<?>) expr;
+        List<Expression<?>> args = operation.getArgs();
+        Expression<?>[] newArgs = new Expression<?>[args.size()];
+        boolean changed = false;
+
+        for (int i = 0; i < args.size(); i++) {
+            Expression<?> arg = args.get(i);
+            Expression<?> newArg = arg instanceof SubQueryExpression
+                    ? rewriteSubQuery(operation.getOperator(), (SubQueryExpression<?>) arg, applied)
+                    : rewrite(arg, applied);
+
+            if (newArg == null) { //IN 대상이 하나도 없는 경우 -> 연산 전체를 상수 조건으로
+                return Expressions.booleanTemplate(operation.getOperator() == Ops.NOT_IN ? "1 = 1" : "1 = 0");
+            }
+            changed |= newArg != arg;
+            newArgs[i] = newArg;
+        }
+
+        if (!changed) {
+            return expr;
+        }
+        return expr instanceof Predicate
+                ? ExpressionUtils.predicate(operation.getOperator(), newArgs)
+                : ExpressionUtils.operation(operation.getType(), operation.getOperator(), newArgs);
+    }
+
+    private Expression<?> rewriteSubQuery(Operator operator, SubQueryExpression<?> subQuery, List<String> applied) {
+        QueryMetadata metadata = subQuery.getMetadata();
+        String description = describe(metadata);
+
+        if (isCorrelated(metadata)) {
+            applied.add("KEPT_CORRELATED: " + description);
+            return subQuery;
+        }
+
+        if (operator == Ops.IN || operator == Ops.NOT_IN) {
+            QueryMetadata limited = metadata.clone();
+            limited.setDistinct(true);
+            limited.setLimit((long) maxInListSize + 1);
+            List<?> values = new JPAQuery<>(em, limited).fetch();
+            if (values.size() > maxInListSize) {
+                applied.add("KEPT_IN_TOO_LARGE: " + description);
+                return subQuery;
+            }
+            applied.add("IN_MATERIALIZED(" + values.size() + "): " + description);
+            return values.isEmpty() ? null : Expressions.constant(values);
+        }
+
+        if (isScalarAggregate(metadata)) {
+            Object value = scalar(description, metadata);
+            if (value == null) { //대상 행이 없으면 원래 의미(null 비교)를 그대로 유지한다.
+                applied.add("KEPT_NULL_AGGREGATE: " + description);
+                return subQuery;
+            }
+            applied.add("SCALAR_AGGREGATE(" + value + "): " + description);
+            //avg는 Double이라 파라미터로 바인딩하면 Integer 컬럼과 타입이 맞지 않는다. 숫자는 리터럴로 넣는다.
+            return value instanceof Number
+                    ? Expressions.numberTemplate(Double.class, value.toString())
+                    : Expressions.constant(value);
+        }
+
+        applied.add("KEPT_UNSUPPORTED: " + description);
+        return subQuery;
+    }
+
+    private Object scalar(String key, QueryMetadata metadata) {
+        long now = System.currentTimeMillis();
+        if (scalarCacheTtlMillis > 0) {
+            CachedScalar cached = scalarCache.get(key);
+            if (cached != null && cached.expiresAt > now) {
+                return cached.value;
+            }
+        }
+
+        Object value = new JPAQuery<>(em, metadata.clone()).fetchOne();
+        if (scalarCacheTtlMillis > 0 && value != null) {
+            scalarCache.put(key, new CachedScalar(value, now + scalarCacheTtlMillis));
+        }
+        return value;
+    }
+
+    private boolean isScalarAggregate(QueryMetadata metadata) {
+        Expression<?> projection = metadata.getProjection();
+        return metadata.getGroupBy().isEmpty()
+                && projection instanceof Operation
+                && ((Operation<?>) projection).getOperator() instanceof Ops.AggOps;
+    }
+
+    /**
+     * 서브쿼리 안에서 사용하는 경로 중 서브쿼리의 from/join에 없는 루트가 있으면 바깥 쿼리를 참조하는 것이다.
+     */
+    private boolean isCorrelated(QueryMetadata metadata) {
+        Set<Expression<?>> own = new HashSet<>();
+        Set<Expression<?>> used = new HashSet<>();
+
+        for (JoinExpression join : metadata.getJoins()) {
+            Expression<?> target = join.getTarget();
+            if (target instanceof Operation && ((Operation<?>) target).getOperator() == Ops.ALIAS) {
+                Operation<?> alias = (Operation<?>) target;
+                collectRoots(alias.getArg(0), used); //join(memberSub.team, team) -> memberSub를 사용
+                collectRoots(alias.getArg(1), own);
+            } else {
+                collectRoots(target, own);
+            }
+            collectRoots(join.getCondition(), used);
+        }
+        collectRoots(metadata.getProjection(), used);
+        collectRoots(metadata.getWhere(), used);
+        collectRoots(metadata.getHaving(), used);
+
+        return !own.containsAll(used);
+    }
+
+    private void collectRoots(Expression<?> expr, Set<Expression<?>> roots) {
+        if (expr instanceof Path) {
+            roots.add(((Path<?>) expr).getRoot());
+        } else if (expr instanceof Operation) {
+            for (Expression<?> arg : ((Operation<?>) expr).getArgs()) {
+                collectRoots(arg, roots);
+            }
+        } else if (expr instanceof TemplateExpression) {
+            for (Object arg : ((TemplateExpression<?>) expr).getArgs()) {
+                if (arg instanceof Expression) {
+                    collectRoots((Expression<?>) arg, roots);
+                }
+            }
+        } else if (expr instanceof SubQueryExpression) { //중첩 서브쿼리는 안쪽 경로도 모두 사용한 것으로 본다. (보수적으로)
+            QueryMetadata metadata = ((SubQueryExpression<?>) expr).getMetadata();
+            collectRoots(metadata.getProjection(), roots);
+            collectRoots(metadata.getWhere(), roots);
+            metadata.getJoins().forEach(join -> collectRoots(join.getTarget(), roots));
+        }
+    }
+
+    private String describe(QueryMetadata metadata) { //Expression.toString()은 상수를 포함하기 때문에 캐시 키로도 사용한다.
+        return "select " + metadata.getProjection() + " from " + metadata.getJoins()
+                + (metadata.getWhere() == null ? "" : " where " + metadata.getWhere());
+    }
+}
@@ -0,0 +1,7 @@
+package study.querydsl.repository;
+
+public enum TopNStrategy {
+    AUTO,       //Dialect가 윈도우 함수를 지원하면 WINDOW, 아니면 CORRELATED
+    WINDOW,     //row_number() over (partition by team_id ...) 네이티브 쿼리
+    CORRELATED  //"나보다 앞서는 같은 팀 회원 수 < n" 상관 서브쿼리 (JPQL)
+}
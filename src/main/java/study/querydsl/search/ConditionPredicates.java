@@ -0,0 +1,187 @@
+package study.querydsl.search;
+
+import com.querydsl.core.types.ConstantImpl;
+import com.querydsl.core.types.EntityPath;
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.Operator;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.Predicate;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @Eq, @Goe, @Loe 가 붙은 검색 조건 객체 -> Querydsl Predicate
+ * 리플렉션은 of() 로 처음 만들 때 한 번만 한다. (필드 getter -> MethodHandle, 경로 문자열 -> Q-type Path)
+ * 요청마다는 MethodHandle 호출과 Predicate 생성만 한다.
+ *
+ * ex) where(predicates.predicates(condition)) -> 값이 없는 조건은 null 이라 where 에서 무시된다.
+ */
+public final class ConditionPredicates<C> {
+
+    private static final Map<String, ConditionPredicates<?>> cache = new ConcurrentHashMap<>();
+
+    private final Clause[] clauses;
+
+    private ConditionPredicates(Clause[] clauses) {
+        this.clauses = clauses;
+    }
+
+    /**
+     * @param roots 경로 문자열의 첫 마디(별칭)가 가리키는 Q-type ex) QMember.member -> "member"
+     */
+    @SuppressWarnings("unchecked")
+    public static <C> ConditionPredicates<C> of(Class<C> conditionType, EntityPath<?>... roots) {
+        StringBuilder key = new StringBuilder(conditionType.getName());
+        for (EntityPath<?> root : roots) {
+            key.append(':').append(root.getType().getName()).append(' ').append(root.getMetadata().getName());
+        }
+        return (ConditionPredicates<C>) cache.computeIfAbsent(key.toString(), k -> compile(conditionType, roots));
+    }
+
+    public Predicate[] predicates(C condition) {
+        Predicate[] result = new Predicate[clauses.length];
+        for (int i = 0; i < clauses.length; i++) {
+            result[i] = clauses[i].predicate(condition);
+        }
+        return result;
+    }
+
+    //값이 있는 조건이 root 경로를 쓰는지 ex) team.name 조건이 있으면 team 조인이 필요하다.
+    public boolean uses(C condition, EntityPath<?> root) {
+        String alias = root.getMetadata().getName();
+        for (Clause clause : clauses) {
+            if (clause.rootAlias.equals(alias) && clause.value(condition) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 같은 조건 객체를 다른 테이블(비정규화 뷰 등)에 적용할 때 쓴다.
+     * @param targets 애노테이션 경로 문자열 -> 대신 쓸 경로 ex) "team.name" -> memberTeamView.teamName
+     */
+    public ConditionPredicates<C> remap(Map<String, ? extends Path<?>> targets) {
+        Clause[] remapped = new Clause[clauses.length];
+        for (int i = 0; i < clauses.length; i++) {
+            Clause clause = clauses[i];
+            Path<?> target = targets.get(clause.pathExpression);
+            if (target == null) {
+                throw new IllegalArgumentException("대상 경로가 없습니다: " + clause.pathExpression);
+            }
+            remapped[i] = new Clause(clause.getter, clause.operator, target, clause.pathExpression,
+                    target.getRoot().getMetadata().getName());
+        }
+        return new ConditionPredicates<>(remapped);
+    }
+
+    private static <C> ConditionPredicates<C> compile(Class<C> conditionType, EntityPath<?>[] roots) {
+        Map<String, EntityPath<?>> rootsByAlias = new HashMap<>();
+        for (EntityPath<?> root : roots) {
+            rootsByAlias.put(root.getMetadata().getName(), root);
+        }
+
+        List<Clause> clauses = new ArrayList<>();
+        for (Class<?> type = conditionType; type != null && type != Object.class; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                for (Annotation annotation : field.getAnnotations()) {
+                    if (annotation instanceof Eq) {
+                        clauses.add(clause(field, Ops.EQ, ((Eq) annotation).value(), rootsByAlias));
+                    } else if (annotation instanceof Goe) {
+                        clauses.add(clause(field, Ops.GOE, ((Goe) annotation).value(), rootsByAlias));
+                    } else if (annotation instanceof Loe) {
+                        clauses.add(clause(field, Ops.LOE, ((Loe) annotation).value(), rootsByAlias));
+                    }
+                }
+            }
+        }
+        return new ConditionPredicates<>(clauses.toArray(new Clause[0]));
+    }
+
+    private static Clause clause(Field field, Operator operator, String pathExpression, Map<String, EntityPath<?>> roots) {
+        String[] segments = pathExpression.split("\\.");
+        Object current = roots.get(segments[0]);
+        if (current == null) {
+            throw new IllegalArgumentException(field + ": 등록되지 않은 별칭입니다 " + pathExpression + " roots=" + roots.keySet());
+        }
+        try {
+            for (int i = 1; i < segments.length; i++) {
+                current = current.getClass().getField(segments[i]).get(current); //Q-type 의 public final 필드
+            }
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            throw new IllegalArgumentException(field + ": 경로를 찾을 수 없습니다 " + pathExpression, e);
+        }
+        if (!(current instanceof Path) || segments.length < 2) {
+            throw new IllegalArgumentException(field + ": 속성 경로가 아닙니다 " + pathExpression);
+        }
+        Path<?> path = (Path<?>) current;
+        if (operator != Ops.EQ && !Comparable.class.isAssignableFrom(path.getType())) {
+            throw new IllegalArgumentException(field + ": 대소 비교할 수 없는 경로입니다 " + pathExpression);
+        }
+        return new Clause(getter(field), operator, path, pathExpression, segments[0]);
+    }
+
+    private static MethodHandle getter(Field field) {
+        String suffix = Character.toUpperCase(field.getName().charAt(0)) + field.getName().substring(1);
+        for (String prefix : new String[]{"get", "is"}) {
+            try {
+                Method method = field.getDeclaringClass().getMethod(prefix + suffix);
+                method.setAccessible(true); //public 이 아닌 클래스(중첩 클래스 등)에 선언된 조건도 허용
+                return MethodHandles.lookup()
+                        .unreflect(method)
+                        .asType(MethodType.methodType(Object.class, Object.class));
+            } catch (NoSuchMethodException ignored) {
+                //다음 prefix
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException(field + ": getter 에 접근할 수 없습니다", e);
+            }
+        }
+        throw new IllegalArgumentException(field + ": public getter 가 없습니다");
+    }
+
+    private static final class Clause {
+
+        private final MethodHandle getter; //(Object)Object
+        private final Operator operator;
+        private final Path<?> path;
+        private final String pathExpression; //애노테이션에 적힌 원래 경로
+        private final String rootAlias;
+
+        Clause(MethodHandle getter, Operator operator, Path<?> path, String pathExpression, String rootAlias) {
+            this.getter = getter;
+            this.operator = operator;
+            this.path = path;
+            this.pathExpression = pathExpression;
+            this.rootAlias = rootAlias;
+        }
+
+        Predicate predicate(Object condition) {
+            Object value = value(condition);
+            return value == null ? null : ExpressionUtils.predicate(operator, path, ConstantImpl.create(value));
+        }
+
+        //null, 빈 문자열은 조건 없음
+        Object value(Object condition) {
+            Object value;
+            try {
+                value = (Object) getter.invokeExact(condition);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+            if (value instanceof CharSequence && ((CharSequence) value).length() == 0) {
+                return null;
+            }
+            return value;
+        }
+    }
+}
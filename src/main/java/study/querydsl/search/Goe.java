@@ -0,0 +1,18 @@
+package study.querydsl.search;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 경로 >= 필드 값 조건을 만든다. value 는 Q-type 경로 ex) "member.age"
+ * 값이 null 이거나 빈 문자열이면 조건에서 빠진다.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface Goe {
+    String value();
+}
@@ -0,0 +1,320 @@
+package study.querydsl.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.domain.Member;
+import study.querydsl.domain.MemberImportCheckpoint;
+import study.querydsl.domain.Team;
+import study.querydsl.dto.MemberImportProgress;
+import study.querydsl.dto.MemberImportRow;
+
+import javax.persistence.EntityManager;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * 회원 대량 import 파이프라인
+ *
+ * parse -> validate -> resolve team -> batch insert 네 단계가 각자의 쓰레드에서 동시에 돌고,
+ * 단계 사이는 크기가 정해진 큐로 연결되어 있어서 입력이 아무리 커도 메모리에 올라가는 행 수는 일정하다.
+ * insert는 chunkSize 단위로 커밋하고 같은 트랜잭션에서 체크포인트를 갱신하므로,
+ * 중간에 실패하면 같은 importId로 다시 요청했을 때 커밋된 줄 다음부터 이어서 넣는다.
+ * 끝난 import의 진행 상황은 retention 동안만 조회할 수 있다.
+ */
+@Slf4j
+@Service
+public class MemberImportService {
+
+    public enum Format { CSV, NDJSON }
+
+    private static final Item END = new Item(-1, null, null); //poison pill
+
+    private final EntityManager em;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+    private final int queueCapacity;
+    private final long retentionMillis;
+
+    private final Map<String, MemberImportProgress> imports = new ConcurrentHashMap<>();
+
+    public MemberImportService(EntityManager em,
+                               PlatformTransactionManager transactionManager,
+                               ObjectMapper objectMapper,
+                               @Value("${member.import.chunk-size:5000}") int chunkSize,
+                               @Value("${member.import.queue-capacity:10000}") int queueCapacity,
+                               @Value("${member.import.retention-ms:3600000}") long retentionMillis) {
+        this.em = em;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+        this.queueCapacity = queueCapacity;
+        this.retentionMillis = retentionMillis;
+    }
+
+    private static class Item {
+        private final long line;
+        private final MemberImportRow row;
+        private String error;
+        private Long teamId;
+
+        Item(long line, MemberImportRow row, String error) {
+            this.line = line;
+            this.row = row;
+            this.error = error;
+        }
+    }
+
+    public Optional<MemberImportProgress> progress(String importId) {
+        evictFinished();
+        return Optional.ofNullable(imports.get(importId));
+    }
+
+    public MemberImportProgress importMembers(String importId, Format format, InputStream in) {
+        evictFinished();
+        long skip = transactionTemplate.execute(status -> {
+            MemberImportCheckpoint checkpoint = em.find(MemberImportCheckpoint.class, importId);
+            return checkpoint == null ? 0L : checkpoint.getProcessedLines();
+        });
+
+        MemberImportProgress progress = new MemberImportProgress(importId, skip);
+        MemberImportProgress running = imports.merge(importId, progress,
+                (old, now) -> old.getState() == MemberImportProgress.State.RUNNING ? old : now);
+        if (running != progress) {
+            throw new IllegalStateException("이미 진행 중인 import 입니다. importId=" + importId);
+        }
+
+        BlockingQueue<Item> parsed = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Item> validated = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Item> resolved = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Map<String, Long> teamIds = new HashMap<>(); //팀 이름 -> id, 이번 import 동안만 쓰고 버린다. (resolve 쓰레드 전용)
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            executor.submit(() -> parse(format, in, skip, parsed, progress, failure));
+            executor.submit(stage(parsed, validated, this::validate, failure));
+            executor.submit(stage(validated, resolved, item -> resolveTeam(item, teamIds), failure));
+
+            write(importId, resolved, progress);
+
+            if (failure.get() != null) {
+                throw new IllegalStateException("import 실패 importId=" + importId, failure.get());
+            }
+            progress.complete();
+            log.info("member import 완료 importId={} committed={} rejected={} elapsed={}ms",
+                    importId, progress.getCommitted(), progress.getRejected(), progress.getElapsedMs());
+            return progress;
+        } catch (RuntimeException e) {
+            progress.fail(e);
+            throw e;
+        } finally {
+            executor.shutdownNow(); //writer가 먼저 실패했으면 큐에서 막혀있는 앞 단계를 깨운다.
+        }
+    }
+
+    //1단계: 한 줄씩 읽어서 파싱 (재시작이면 이미 처리한 줄은 건너뜀)
+    private void parse(Format format, InputStream in, long skip, BlockingQueue<Item> out,
+                       MemberImportProgress progress, AtomicReference<Throwable> failure) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            long line = 0;
+            boolean first = true;
+            String text;
+            while ((text = reader.readLine()) != null) {
+                if (first && format == Format.CSV && text.trim().equalsIgnoreCase("username,age,teamName")) {
+                    first = false;
+                    continue;
+                }
+                first = false;
+                if (text.isBlank()) {
+                    continue;
+                }
+
+                line++;
+                if (line <= skip) {
+                    continue;
+                }
+                out.put(parseLine(format, text, line));
+                progress.getParsed().incrementAndGet();
+            }
+        } catch (IOException | RuntimeException e) {
+            failure.compareAndSet(null, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            putEnd(out);
+        }
+    }
+
+    private Item parseLine(Format format, String text, long line) {
+        if (format == Format.NDJSON) {
+            try {
+                return new Item(line, objectMapper.readValue(text, MemberImportRow.class), null);
+            } catch (JsonProcessingException e) {
+                return new Item(line, null, "JSON 형식 오류");
+            }
+        }
+
+        String[] fields = text.split(",", -1); //username,age,teamName (따옴표 escape는 지원하지 않음)
+        if (fields.length < 2 || fields.length > 3) {
+            return new Item(line, null, "CSV 컬럼 수 오류");
+        }
+        try {
+            Integer age = fields[1].isBlank() ? null : Integer.valueOf(fields[1].trim());
+            String teamName = fields.length == 3 ? fields[2].trim() : null;
+            return new Item(line, new MemberImportRow(fields[0].trim(), age, teamName), null);
+        } catch (NumberFormatException e) {
+            return new Item(line, null, "age가 숫자가 아님");
+        }
+    }
+
+    //2단계: 검증 (거절된 행도 체크포인트 계산을 위해 그대로 흘려보낸다.)
+    private void validate(Item item) {
+        if (item.error != null) {
+            return;
+        }
+        MemberImportRow row = item.row;
+        if (!hasText(row.getUsername()) || row.getUsername().length() > 255) {
+            item.error = "username 누락 또는 255자 초과";
+        } else if (row.getAge() == null || row.getAge() < 0 || row.getAge() > 200) {
+            item.error = "age 범위 오류";
+        }
+    }
+
+    //3단계: 팀 이름 -> id (없으면 생성)
+    private void resolveTeam(Item item, Map<String, Long> teamIds) {
+        if (item.error == null && hasText(item.row.getTeamName())) {
+            item.teamId = teamIds.computeIfAbsent(item.row.getTeamName(), this::findOrCreateTeam);
+        }
+    }
+
+    private Long findOrCreateTeam(String name) {
+        try {
+            return transactionTemplate.execute(status -> {
+                Long id = findTeamId(name);
+                if (id != null) {
+                    return id;
+                }
+                Team team = new Team(name);
+                em.persist(team);
+                return team.getId();
+            });
+        } catch (DataIntegrityViolationException e) { //다른 import(다른 서버)가 같은 이름으로 먼저 만들었다. (uk_team_name)
+            return transactionTemplate.execute(status -> findTeamId(name));
+        }
+    }
+
+    private Long findTeamId(String name) {
+        List<Long> ids = em.createQuery("select t.id from Team t where t.name = :name", Long.class)
+                .setParameter("name", name)
+                .getResultList();
+        return ids.isEmpty() ? null : ids.get(0);
+    }
+
+    //끝난 지 retention이 지난 진행 상황은 버린다. (진행 중인 것은 남긴다)
+    private void evictFinished() {
+        long expiredBefore = System.currentTimeMillis() - retentionMillis;
+        imports.values().removeIf(progress -> progress.getFinishedAt() != 0 && progress.getFinishedAt() <= expiredBefore);
+    }
+
+    //4단계: chunk 단위 insert + 체크포인트 갱신 (호출한 쓰레드에서 실행)
+    private void write(String importId, BlockingQueue<Item> in, MemberImportProgress progress) {
+        List<Item> chunk = new ArrayList<>(chunkSize);
+        try {
+            while (true) {
+                Item item = in.take();
+                if (item == END) {
+                    break;
+                }
+                chunk.add(item);
+                if (chunk.size() >= chunkSize) {
+                    commit(importId, chunk, progress);
+                    chunk.clear();
+                }
+            }
+            commit(importId, chunk, progress); //앞 단계가 실패했어도 여기까지 온 행은 순서대로 처리된 것이라 커밋해도 안전하다.
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("import 중 인터럽트 importId=" + importId, e);
+        }
+    }
+
+    private void commit(String importId, List<Item> chunk, MemberImportProgress progress) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        Integer inserted = transactionTemplate.execute(status -> {
+            int count = 0;
+            for (Item item : chunk) {
+                if (item.error != null) {
+                    continue;
+                }
+                Team team = item.teamId == null ? null : em.getReference(Team.class, item.teamId); //팀을 조회하지 않고 FK만 채운다.
+                em.persist(new Member(item.row.getUsername(), item.row.getAge(), team));
+                count++;
+            }
+
+            MemberImportCheckpoint checkpoint = em.find(MemberImportCheckpoint.class, importId);
+            if (checkpoint == null) {
+                checkpoint = new MemberImportCheckpoint(importId);
+                em.persist(checkpoint);
+            }
+            checkpoint.advance(chunk.get(chunk.size() - 1).line);
+            return count;
+        });
+
+        chunk.stream().filter(item -> item.error != null).forEach(item -> progress.reject(item.line, item.error));
+        progress.getCommitted().addAndGet(inserted == null ? 0 : inserted);
+    }
+
+    private Runnable stage(BlockingQueue<Item> in, BlockingQueue<Item> out, Consumer<Item> process,
+                           AtomicReference<Throwable> failure) {
+        return () -> {
+            try {
+                while (true) {
+                    Item item = in.take();
+                    if (item == END) {
+                        break;
+                    }
+                    process.accept(item);
+                    out.put(item);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                putEnd(out);
+            }
+        };
+    }
+
+    private void putEnd(BlockingQueue<Item> out) {
+        try {
+            out.put(END);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
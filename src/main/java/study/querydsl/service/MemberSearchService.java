@@ -0,0 +1,86 @@
+package study.querydsl.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.deadline.Deadline;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberRepository;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.aspectj.util.LangUtil.isEmpty;
+
+/**
+ * 같은 조건의 검색이 동시에 몰리면(인기 팀 페이지 등) DB 쿼리 한 번의 결과를 나눠 쓴다.
+ * 쓰기 트랜잭션 안의 호출은 커밋 안 된 변경이 결과에 섞일 수 있으므로 합치지 않고 바로 조회한다.
+ * 합쳐진 호출은 같은 DTO 인스턴스를 받게 되므로 호출자마다 복사본을 돌려준다.
+ */
+@Service
+public class MemberSearchService {
+
+    private final MemberRepository memberRepository;
+    private final SingleFlight<MemberSearchCondition, List<MemberTeamDto>> singleFlight = new SingleFlight<>();
+    private final boolean enabled;
+    private final long timeoutMillis;
+
+    public MemberSearchService(MemberRepository memberRepository, MeterRegistry meterRegistry,
+                               @Value("${member.search.single-flight.enabled:true}") boolean enabled,
+                               @Value("${member.search.single-flight.timeout-ms:3000}") long timeoutMillis) {
+        this.memberRepository = memberRepository;
+        this.enabled = enabled;
+        this.timeoutMillis = timeoutMillis;
+
+        FunctionCounter.builder("member.search.calls", singleFlight, SingleFlight::getCalls).register(meterRegistry);
+        FunctionCounter.builder("member.search.executions", singleFlight, SingleFlight::getExecutions).register(meterRegistry);
+        FunctionCounter.builder("member.search.wait.timeouts", singleFlight, SingleFlight::getTimeouts).register(meterRegistry);
+        FunctionCounter.builder("member.search.leader.timeouts", singleFlight, SingleFlight::getLeaderTimeouts).register(meterRegistry);
+        Gauge.builder("member.search.in-flight", singleFlight, SingleFlight::inFlightCount).register(meterRegistry);
+        //1 - 실행/호출 -> 0이면 합쳐진 호출이 없음
+        Gauge.builder("member.search.collapse.ratio", singleFlight,
+                sf -> sf.getCalls() == 0 ? 0 : 1 - (double) sf.getExecutions() / sf.getCalls())
+                .register(meterRegistry);
+    }
+
+    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        if (!enabled || inWritableTransaction()) {
+            return memberRepository.search(condition);
+        }
+        MemberSearchCondition key = normalize(condition);
+        //결과 리스트와 DTO 는 호출자끼리 공유하지 않는다.
+        return copyOf(singleFlight.execute(key, () -> memberRepository.search(key), waitMillis()));
+    }
+
+    //요청 시간 예산이 있으면 그보다 오래 기다리지 않는다.
+    private long waitMillis() {
+        Deadline deadline = Deadline.current();
+        return deadline == null ? timeoutMillis : Math.max(0, Math.min(timeoutMillis, deadline.remainingMillis()));
+    }
+
+    private static List<MemberTeamDto> copyOf(List<MemberTeamDto> shared) {
+        return shared.stream()
+                .map(dto -> new MemberTeamDto(dto.getMemberId(), dto.getUsername(), dto.getAge(), dto.getTeamId(), dto.getTeamName()))
+                .collect(Collectors.toList());
+    }
+
+    private boolean inWritableTransaction() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    //빈 문자열 == 조건 없음 이므로 같은 key 가 되도록 맞춘다. (key 로 쓰므로 원본과 분리된 복사본)
+    private MemberSearchCondition normalize(MemberSearchCondition condition) {
+        MemberSearchCondition key = new MemberSearchCondition();
+        key.setUsername(isEmpty(condition.getUsername()) ? null : condition.getUsername());
+        key.setTeamName(isEmpty(condition.getTeamName()) ? null : condition.getTeamName());
+        key.setAgeGoe(condition.getAgeGoe());
+        key.setAgeLoe(condition.getAgeLoe());
+        key.setIncludeArchive(condition.isIncludeArchive());
+        return key;
+    }
+}
@@ -0,0 +1,124 @@
+package study.querydsl.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.domain.Member;
+import study.querydsl.domain.Team;
+
+import javax.persistence.EntityManager;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+
+/**
+ * 회원 단건 수정 + 충돌 시 재시도
+ * 1. 같은 JVM의 같은 회원 수정은 StripedLocks로 먼저 줄 세운다.
+ * 2. 그래도 충돌하면(다른 서버, 벌크 연산 등) 시도마다 새 트랜잭션에서 다시 읽어서 적용한다. (jitter backoff)
+ * 시도마다 REQUIRES_NEW로 새 트랜잭션을 연다. 바깥 트랜잭션 안에서 호출해도 충돌한 영속성 컨텍스트를 재사용하지 않고,
+ * 수정은 바깥 트랜잭션과 별개로 바로 커밋된다. (바깥 트랜잭션이 같은 회원을 먼저 수정했다면 그 락을 기다리게 되므로 주의)
+ */
+@Slf4j
+@Service
+public class MemberUpdateService {
+
+    private final EntityManager em;
+    private final TransactionTemplate transactionTemplate;
+    private final StripedLocks locks; //stripes가 0이면 락 없이 낙관적 락만 사용
+    private final int maxAttempts;
+    private final long backoffMillis;
+
+    private final AtomicLong attempts = new AtomicLong();
+    private final AtomicLong conflicts = new AtomicLong();
+    private final AtomicLong exhausted = new AtomicLong();
+
+    public MemberUpdateService(EntityManager em,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${member.update.lock-stripes:64}") int lockStripes,
+                               @Value("${member.update.max-attempts:10}") int maxAttempts,
+                               @Value("${member.update.backoff-ms:5}") long backoffMillis) {
+        this.em = em;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.locks = lockStripes > 0 ? new StripedLocks(lockStripes) : null;
+        this.maxAttempts = maxAttempts;
+        this.backoffMillis = backoffMillis;
+    }
+
+    public void changeAge(Long memberId, int age) {
+        update(memberId, member -> member.setAge(age));
+    }
+
+    public void addAge(Long memberId, int delta) { //읽고-수정하고-쓰는 갱신이라 lost update가 생기기 쉬운 경우
+        update(memberId, member -> member.setAge(member.getAge() + delta));
+    }
+
+    public void changeTeam(Long memberId, Long teamId) {
+        update(memberId, member -> member.changeTeam(em.getReference(Team.class, teamId)));
+    }
+
+    public void update(Long memberId, Consumer<Member> change) {
+        for (int attempt = 1; ; attempt++) {
+            attempts.incrementAndGet();
+            try {
+                runLocked(memberId, () -> transactionTemplate.executeWithoutResult(status -> {
+                    Member member = em.find(Member.class, memberId);
+                    if (member == null) {
+                        throw new IllegalArgumentException("회원이 없습니다. id=" + memberId);
+                    }
+                    change.accept(member);
+                }));
+                return;
+            } catch (ConcurrencyFailureException e) { //낙관적 락 충돌 + DB 락 타임아웃
+                conflicts.incrementAndGet();
+                if (attempt >= maxAttempts) {
+                    exhausted.incrementAndGet();
+                    log.warn("회원 수정 재시도 초과 id={} attempts={}", memberId, attempt);
+                    throw e;
+                }
+                sleep(attempt); //락을 쥔 채로 기다리지 않도록 락 밖에서 쉰다.
+            }
+        }
+    }
+
+    private void runLocked(Long memberId, Runnable action) {
+        if (locks == null) {
+            action.run();
+            return;
+        }
+        Lock lock = locks.get(memberId);
+        lock.lock();
+        try {
+            action.run();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void sleep(int attempt) { //full jitter: 0 ~ backoff * 2^(attempt-1), 최대 2^10배
+        long max = backoffMillis << Math.min(attempt - 1, 10);
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(max + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("재시도 대기 중 인터럽트", e);
+        }
+    }
+
+    public long getAttempts() {
+        return attempts.get();
+    }
+
+    public long getConflicts() {
+        return conflicts.get();
+    }
+
+    public long getExhausted() {
+        return exhausted.get();
+    }
+}
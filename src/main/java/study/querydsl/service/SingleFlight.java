@@ -0,0 +1,110 @@
+package study.querydsl.service;
+
+import org.springframework.dao.QueryTimeoutException;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 같은 key 로 동시에 들어온 호출은 먼저 온 호출(leader)의 실행 결과를 같이 받는다.
+ * leader 는 자기 스레드에서 loader 를 실행하고, 나머지(waiter)는 timeout 까지만 기다린다.
+ * waiter 가 타임아웃/인터럽트로 빠져도 leader 의 실행은 그대로 진행된다. (다른 waiter 가 있을 수 있으므로)
+ * 결과는 캐시하지 않는다. 실행이 끝나는 순간 key 가 지워진다.
+ * leader 가 QueryTimeoutException 으로 실패하면 그건 leader 자신의 시간 예산이 끝난 것이므로, waiter 는 예외를 넘겨받지 않고 남은 대기 시간 안에서 다시 leader 로 실행한다.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong leaderTimeouts = new AtomicLong();
+
+    public V execute(K key, Supplier<V> loader, long timeoutMillis) {
+        calls.incrementAndGet();
+        long waitUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (true) {
+            CompletableFuture<V> mine = new CompletableFuture<>();
+            CompletableFuture<V> running = inFlight.putIfAbsent(key, mine);
+            if (running == null) {
+                return lead(key, mine, loader);
+            }
+            try {
+                return await(key, running, waitUntil, timeoutMillis);
+            } catch (LeaderTimedOut e) {
+                leaderTimeouts.incrementAndGet(); //leader 의 예산이 끝났을 뿐이므로 내 예산으로 다시 시도한다.
+            }
+        }
+    }
+
+    private V lead(K key, CompletableFuture<V> mine, Supplier<V> loader) {
+        executions.incrementAndGet();
+        try {
+            V value = loader.get();
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e); //같은 쿼리라 waiter 도 같은 예외를 받는다.
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private V await(K key, CompletableFuture<V> running, long waitUntil, long timeoutMillis) {
+        try {
+            return running.get(waitUntil - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            timeouts.incrementAndGet();
+            throw new QueryTimeoutException("single-flight 대기 시간 초과 key=" + key + " timeout=" + timeoutMillis + "ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("single-flight 대기 중 인터럽트 key=" + key);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof QueryTimeoutException) {
+                throw new LeaderTimedOut();
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    public long getCalls() {
+        return calls.get();
+    }
+
+    public long getExecutions() {
+        return executions.get();
+    }
+
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+
+    public long getLeaderTimeouts() {
+        return leaderTimeouts.get();
+    }
+
+    private static class LeaderTimedOut extends RuntimeException {
+        LeaderTimedOut() {
+            super(null, null, false, false); //재시도 신호일 뿐이라 스택을 만들지 않는다.
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package study.querydsl.service;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * id를 stripe 수만큼의 락으로 나눠 갖는다.
+ * 같은 JVM 안에서 같은 회원을 동시에 수정하는 요청을 줄 세워서 DB까지 가는 낙관적 락 충돌을 줄이는 용도
+ */
+public class StripedLocks {
+
+    private final Lock[] locks;
+
+    public StripedLocks(int stripes) {
+        this.locks = new Lock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    public Lock get(Long id) {
+        return locks[Math.floorMod(Long.hashCode(id), locks.length)];
+    }
+}
@@ -0,0 +1,201 @@
+package study.querydsl.service;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.MemberField;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.QueryPlanPrewarmer;
+
+import javax.persistence.EntityManager;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static study.querydsl.domain.QMember.member;
+import static study.querydsl.domain.QTeam.team;
+
+/**
+ * 배포 직후 느린 첫 요청들(HQL 플랜 캐시, JIT, 빈 커넥션 풀)을 트래픽 대신 미리 겪는다.
+ * 1. 커넥션 풀을 connections 개까지 채운다.
+ * 2. 실제 데이터에서 뽑은 값으로 검색 조건을 만들어 read-only 트랜잭션에서 라운드마다 iterations 번 실행한다.
+ * 3. 라운드 p99 가 p99-threshold-ms 아래로 stable-rounds 번 연속 나오면 준비 완료.
+ * 이 클래스가 HealthIndicator 라서 readiness 그룹(/actuator/health/readiness)에 들어가면 준비 전까지 OUT_OF_SERVICE 다.
+ */
+@Slf4j
+@Component("warmUpHealthIndicator")
+@ConditionalOnProperty(name = "member.warmup.enabled", havingValue = "true")
+public class WarmUpService implements HealthIndicator {
+
+    private static final PageRequest FIRST_PAGE = PageRequest.of(0, 20);
+
+    private final MemberRepository memberRepository;
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate readOnlyTx;
+    private final DataSource dataSource;
+
+    private final int connections;
+    private final int iterations;
+    private final long p99ThresholdMillis;
+    private final int stableRounds;
+    private final int maxRounds;
+
+    private volatile boolean ready;
+    private volatile int rounds;
+    private volatile double lastP99Millis = Double.NaN;
+
+    public WarmUpService(MemberRepository memberRepository, EntityManager em,
+                         PlatformTransactionManager txManager, DataSource dataSource, MeterRegistry meterRegistry,
+                         @Value("${member.warmup.connections:10}") int connections,
+                         @Value("${member.warmup.iterations:200}") int iterations,
+                         @Value("${member.warmup.p99-threshold-ms:50}") long p99ThresholdMillis,
+                         @Value("${member.warmup.stable-rounds:3}") int stableRounds,
+                         @Value("${member.warmup.max-rounds:30}") int maxRounds) {
+        this.memberRepository = memberRepository;
+        this.queryFactory = new JPAQueryFactory(em);
+        this.readOnlyTx = new TransactionTemplate(txManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.dataSource = dataSource;
+        this.connections = connections;
+        this.iterations = iterations;
+        this.p99ThresholdMillis = p99ThresholdMillis;
+        this.stableRounds = stableRounds;
+        this.maxRounds = maxRounds;
+
+        Gauge.builder("member.warmup.p99", this, s -> s.lastP99Millis).baseUnit("milliseconds").register(meterRegistry);
+        Gauge.builder("member.warmup.rounds", this, s -> s.rounds).register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUpInBackground() {
+        Thread thread = new Thread(this::warmUp, "warm-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void warmUp() {
+        long start = System.nanoTime();
+        try {
+            fillConnectionPool();
+            List<MemberSearchCondition> conditions = readOnlyTx.execute(status -> synthesizeConditions());
+
+            int stable = 0;
+            while (!ready && rounds < maxRounds) {
+                lastP99Millis = runRound(conditions);
+                rounds++;
+                stable = lastP99Millis < p99ThresholdMillis ? stable + 1 : 0;
+                log.debug("warm-up round={} p99={}ms stable={}", rounds, lastP99Millis, stable);
+                if (stable >= stableRounds) {
+                    ready = true;
+                }
+            }
+            if (!ready) { //끝까지 안 떨어져도 트래픽을 영원히 막을 수는 없다.
+                log.warn("warm-up p99 가 {}ms 아래로 안정되지 않음 rounds={} p99={}ms", p99ThresholdMillis, rounds, lastP99Millis);
+            }
+        } catch (RuntimeException e) {
+            log.warn("warm-up 실패", e);
+        } finally {
+            ready = true;
+            log.info("warm-up 완료 rounds={} p99={}ms {}ms", rounds, lastP99Millis, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    //커넥션을 동시에 빌렸다가 돌려준다. -> 풀이 connections 개까지 실제 커넥션을 만들어 둔다.
+    private void fillConnectionPool() {
+        List<Connection> borrowed = new ArrayList<>(connections);
+        try {
+            for (int i = 0; i < connections; i++) {
+                Connection connection = dataSource.getConnection();
+                borrowed.add(connection);
+                connection.isValid(1);
+            }
+        } catch (SQLException e) {
+            log.warn("warm-up 커넥션 확보 실패 borrowed={}", borrowed.size(), e);
+        } finally {
+            for (Connection connection : borrowed) {
+                try {
+                    connection.close();
+                } catch (SQLException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * 조건 16가지 조합 x 실제 팀명/회원명 -> 실제 트래픽과 비슷한 선택도의 조건
+     */
+    private List<MemberSearchCondition> synthesizeConditions() {
+        List<String> teamNames = queryFactory.select(team.name).from(team).limit(20).fetch();
+        List<String> usernames = queryFactory.select(member.username).from(member).limit(50).fetch();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        List<MemberSearchCondition> conditions = new ArrayList<>();
+        for (int copy = 0; copy < 4; copy++) {
+            for (MemberSearchCondition shape : QueryPlanPrewarmer.conditionShapes()) {
+                MemberSearchCondition condition = new MemberSearchCondition();
+                if (shape.getUsername() != null) {
+                    condition.setUsername(usernames.isEmpty() ? "warmup" : usernames.get(random.nextInt(usernames.size())));
+                }
+                if (shape.getTeamName() != null) {
+                    condition.setTeamName(teamNames.isEmpty() ? "warmup" : teamNames.get(random.nextInt(teamNames.size())));
+                }
+                if (shape.getAgeGoe() != null) {
+                    condition.setAgeGoe(random.nextInt(60));
+                }
+                if (shape.getAgeLoe() != null) {
+                    condition.setAgeLoe((condition.getAgeGoe() == null ? 0 : condition.getAgeGoe()) + random.nextInt(40));
+                }
+                conditions.add(condition);
+            }
+        }
+        return conditions;
+    }
+
+    private double runRound(List<MemberSearchCondition> conditions) {
+        long[] nanos = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            MemberSearchCondition condition = conditions.get(i % conditions.size());
+            long start = System.nanoTime();
+            readOnlyTx.executeWithoutResult(status -> {
+                memberRepository.search(condition, FIRST_PAGE);
+                if (condition.getUsername() != null) { //전체 결과를 읽는 경로는 결과가 작은 조건에서만
+                    memberRepository.search(condition);
+                    memberRepository.search(condition, List.of(MemberField.USERNAME, MemberField.AGE));
+                }
+            });
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return nanos[(int) Math.ceil(iterations * 0.99) - 1] / 1_000_000.0;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder builder = ready ? Health.up() : Health.outOfService();
+        return builder
+                .withDetail("rounds", rounds)
+                .withDetail("p99Ms", lastP99Millis)
+                .withDetail("thresholdMs", p99ThresholdMillis)
+                .build();
+    }
+}
@@ -0,0 +1,21 @@
+package study.querydsl.shard;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "member.shard")
+public class ShardProperties {
+
+    private boolean enabled = false;
+    private List<String> urls = new ArrayList<>(); //샤드 순서가 곧 샤드 번호. 순서를 바꾸면 라우팅이 바뀐다.
+    private String username = "sa";
+    private String password = "";
+    private long idBlockSize = 1_000_000_000_000L; //샤드 i 의 id 는 [i * idBlockSize, (i + 1) * idBlockSize)
+    private String ddlAuto = "create";
+}
@@ -0,0 +1,53 @@
+package study.querydsl.shard;
+
+import study.querydsl.dto.MemberSearchCondition;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.aspectj.util.LangUtil.isEmpty;
+
+/**
+ * 샤드 키 = 팀 이름 해시. 회원은 소속 팀과 같은 샤드에 둔다. (team 조인이 샤드 안에서 끝난다)
+ * 팀이 없는 회원만 username 해시로 나눈다.
+ * id 는 샤드마다 겹치지 않는 블록에서 발급되므로 id 만으로도 샤드를 알 수 있다.
+ */
+public class ShardRouter {
+
+    private final int shardCount;
+    private final long idBlockSize;
+
+    public ShardRouter(int shardCount, long idBlockSize) {
+        this.shardCount = shardCount;
+        this.idBlockSize = idBlockSize;
+    }
+
+    public int forTeam(String teamName) {
+        return Math.floorMod(teamName.hashCode(), shardCount);
+    }
+
+    public int forMember(String username, String teamName) {
+        return teamName != null ? forTeam(teamName) : Math.floorMod(username.hashCode(), shardCount);
+    }
+
+    public int forId(long id) {
+        return (int) Math.floorDiv(id, idBlockSize);
+    }
+
+    public long firstId(int shard) {
+        return shard * idBlockSize;
+    }
+
+    //teamName 조건이 있으면 그 팀의 샤드만, 아니면 전체 샤드 (팀 없는 회원은 teamName 조건에 걸리지 않는다)
+    public List<Integer> shardsFor(MemberSearchCondition condition) {
+        if (!isEmpty(condition.getTeamName())) {
+            return List.of(forTeam(condition.getTeamName()));
+        }
+        return IntStream.range(0, shardCount).boxed().collect(Collectors.toList());
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+}
@@ -0,0 +1,351 @@
+package study.querydsl.shard;
+
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.orm.jpa.EntityManagerFactoryBuilder;
+import org.springframework.boot.orm.jpa.hibernate.SpringImplicitNamingStrategy;
+import org.springframework.boot.orm.jpa.hibernate.SpringPhysicalNamingStrategy;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import study.querydsl.domain.Member;
+import study.querydsl.domain.Team;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.repository.MemberSortKey;
+import study.querydsl.repository.MemberSortSupport;
+import study.querydsl.search.ConditionPredicates;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.EntityTransaction;
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+import static study.querydsl.domain.QMember.member;
+import static study.querydsl.domain.QTeam.team;
+
+/**
+ * 여러 DB(샤드)에 나눠 저장된 member/team 저장소
+ * - 쓰기: ShardRouter 가 정한 샤드 하나에만 쓴다. 회원과 팀은 항상 같은 샤드에 있다.
+ * - 검색: 조건이 닿을 수 있는 샤드에만 병렬로 보내고, 샤드별로 정렬된 결과를 k-way merge 해서 페이징한다.
+ *   (샤드마다 offset + size 건까지 가져와야 하므로 뒤쪽 페이지일수록 비싸다)
+ * 샤드 EntityManagerFactory 는 빈으로 등록하지 않는다. 등록하면 기본 JPA 자동 설정이 물러난다.
+ * 기존 MemberRepository / MemberJpaRepository 경로는 샤딩을 켜도 기본 DB 를 그대로 읽고 쓴다.
+ * 쓰기 경로(save, import, MemberUpdateService, moveMembers, 벌크 연산)가 ShardRouter 를 거치기 전에 검색만 넘기면
+ * 앱으로 쓴 데이터가 검색에 안 보이므로, 샤드 데이터는 이 저장소의 메서드로만 읽고 쓴다.
+ */
+@Slf4j
+public class ShardedMemberRepository implements DisposableBean {
+
+    private static final ConditionPredicates<MemberSearchCondition> SEARCH = ConditionPredicates.of(MemberSearchCondition.class, member, team);
+    private static final long SEQUENCE_HEADROOM = 1000; //pooled 옵티마이저는 첫 값에서 allocationSize - 1 을 빼서 쓴다.
+
+    private final ShardRouter router;
+    private final List<DataSource> dataSources = new ArrayList<>();
+    private final List<EntityManagerFactory> emfs = new ArrayList<>();
+    private final ExecutorService fanOut;
+
+    public ShardedMemberRepository(ShardProperties properties, EntityManagerFactoryBuilder builder) {
+        if (properties.getUrls().isEmpty()) {
+            throw new IllegalStateException("member.shard.urls 가 비어 있습니다.");
+        }
+        this.router = new ShardRouter(properties.getUrls().size(), properties.getIdBlockSize());
+        this.fanOut = Executors.newFixedThreadPool(router.getShardCount());
+
+        Map<String, Object> jpaProperties = new HashMap<>();
+        jpaProperties.put("hibernate.hbm2ddl.auto", properties.getDdlAuto());
+        jpaProperties.put("hibernate.physical_naming_strategy", SpringPhysicalNamingStrategy.class.getName());
+        jpaProperties.put("hibernate.implicit_naming_strategy", SpringImplicitNamingStrategy.class.getName());
+
+        for (int shard = 0; shard < router.getShardCount(); shard++) {
+            DataSource dataSource = DataSourceBuilder.create()
+                    .url(properties.getUrls().get(shard))
+                    .username(properties.getUsername())
+                    .password(properties.getPassword())
+                    .build();
+            LocalContainerEntityManagerFactoryBean factory = builder
+                    .dataSource(dataSource)
+                    .packages(Member.class)
+                    .persistenceUnit("member-shard-" + shard)
+                    .properties(jpaProperties)
+                    .build();
+            factory.afterPropertiesSet();
+
+            dataSources.add(dataSource);
+            emfs.add(factory.getObject());
+            if (properties.getDdlAuto().startsWith("create")) {
+                restartSequences(shard);
+            }
+        }
+    }
+
+    //새로 만든 스키마의 시퀀스를 샤드 id 블록 시작으로 옮긴다. -> 전체 샤드에서 id 가 겹치지 않는다.
+    private void restartSequences(int shard) {
+        long start = router.firstId(shard) + SEQUENCE_HEADROOM;
+        inTransaction(shard, em -> {
+            em.createNativeQuery("alter sequence member_seq restart with " + start).executeUpdate();
+            em.createNativeQuery("alter sequence hibernate_sequence restart with " + start).executeUpdate();
+            return null;
+        });
+    }
+
+    public Long saveTeam(String teamName) {
+        return inTransaction(router.forTeam(teamName), em -> findOrCreateTeam(em, teamName).getId());
+    }
+
+    //팀이 있으면 팀의 샤드에, 팀도 없으면 같이 만든다.
+    public Long saveMember(String username, int age, String teamName) {
+        int shard = router.forMember(username, teamName);
+        return inTransaction(shard, em -> {
+            Team memberTeam = teamName == null ? null : findOrCreateTeam(em, teamName);
+            Member newMember = new Member(username, age, memberTeam);
+            em.persist(newMember);
+            return newMember.getId();
+        });
+    }
+
+    public Optional<MemberTeamDto> findById(Long id) {
+        int shard = router.forId(id);
+        if (shard < 0 || shard >= emfs.size()) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(read(shard, em -> new JPAQueryFactory(em)
+                .select(memberTeamDto())
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(member.id.eq(id))
+                .fetchOne()));
+    }
+
+    public List<MemberTeamDto> search(MemberSearchCondition condition, Pageable pageable) {
+        List<Integer> shards = router.shardsFor(condition);
+        long perShardLimit = pageable.isPaged() ? pageable.getOffset() + pageable.getPageSize() : -1;
+
+        List<List<MemberTeamDto>> perShard = new ArrayList<>(shards.size());
+        if (shards.size() == 1) {
+            perShard.add(searchShard(shards.get(0), condition, pageable.getSort(), perShardLimit));
+        } else {
+            List<Future<List<MemberTeamDto>>> futures = new ArrayList<>(shards.size());
+            for (Integer shard : shards) {
+                futures.add(fanOut.submit(() -> searchShard(shard, condition, pageable.getSort(), perShardLimit)));
+            }
+            for (Future<List<MemberTeamDto>> future : futures) {
+                perShard.add(await(future));
+            }
+        }
+        return merge(perShard, comparator(pageable.getSort()),
+                pageable.isPaged() ? pageable.getOffset() : 0,
+                pageable.isPaged() ? pageable.getPageSize() : Integer.MAX_VALUE);
+    }
+
+    public long searchCount(MemberSearchCondition condition) {
+        List<Future<Long>> futures = new ArrayList<>();
+        for (Integer shard : router.shardsFor(condition)) {
+            futures.add(fanOut.submit(() -> read(shard, em -> {
+                Long count = new JPAQueryFactory(em)
+                        .select(member.count())
+                        .from(member)
+                        .leftJoin(member.team, team)
+                        .where(SEARCH.predicates(condition))
+                        .fetchOne();
+                return count == null ? 0L : count;
+            })));
+        }
+        long total = 0;
+        for (Future<Long> future : futures) {
+            total += await(future);
+        }
+        return total;
+    }
+
+    public List<Integer> shardsFor(MemberSearchCondition condition) {
+        return router.shardsFor(condition);
+    }
+
+    public ShardRouter getRouter() {
+        return router;
+    }
+
+    private List<MemberTeamDto> searchShard(int shard, MemberSearchCondition condition, Sort sort, long limit) {
+        return read(shard, em -> {
+            JPAQuery<MemberTeamDto> query = new JPAQueryFactory(em)
+                    .select(memberTeamDto())
+                    .from(member)
+                    .leftJoin(member.team, team)
+                    .where(SEARCH.predicates(condition))
+                    .orderBy(MemberSortSupport.toOrderSpecifiers(sort));
+            if (limit >= 0) {
+                query.limit(limit);
+            }
+            return query.fetch();
+        });
+    }
+
+    //샤드별 결과는 이미 같은 순서로 정렬되어 있으므로 앞에서부터 하나씩 꺼내 합친다.
+    private List<MemberTeamDto> merge(List<List<MemberTeamDto>> sortedLists, Comparator<MemberTeamDto> comparator,
+                                      long offset, int size) {
+        PriorityQueue<PeekingIterator> heads = new PriorityQueue<>((a, b) -> comparator.compare(a.peek(), b.peek()));
+        for (List<MemberTeamDto> list : sortedLists) {
+            if (!list.isEmpty()) {
+                heads.add(new PeekingIterator(list.iterator()));
+            }
+        }
+
+        List<MemberTeamDto> page = new ArrayList<>(Math.min(size, 1024));
+        long skipped = 0;
+        while (!heads.isEmpty() && page.size() < size) {
+            PeekingIterator head = heads.poll();
+            MemberTeamDto next = head.next();
+            if (skipped < offset) {
+                skipped++;
+            } else {
+                page.add(next);
+            }
+            if (head.hasNext()) {
+                heads.add(head);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * DB 의 ORDER BY 와 같은 순서. null 은 DB 기본값처럼 작은 값으로 본다. (asc -> 앞, desc -> 뒤)
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Comparator<MemberTeamDto> comparator(Sort sort) {
+        Comparator<MemberTeamDto> result = (a, b) -> 0;
+        for (Sort.Order order : sort) {
+            MemberSortKey key = MemberSortKey.from(order.getProperty());
+            Comparator<Comparable> values = Comparator.naturalOrder();
+            if (order.isDescending()) {
+                values = values.reversed();
+            }
+            boolean nullsFirst = order.getNullHandling() == Sort.NullHandling.NATIVE
+                    ? order.isAscending()
+                    : order.getNullHandling() == Sort.NullHandling.NULLS_FIRST;
+            Comparator<Comparable> nullSafe = nullsFirst ? Comparator.nullsFirst(values) : Comparator.nullsLast(values);
+            result = result.thenComparing(dto -> sortValue(key, dto), nullSafe);
+        }
+        return result.thenComparing(MemberTeamDto::getMemberId);
+    }
+
+    @SuppressWarnings("rawtypes")
+    private Comparable sortValue(MemberSortKey key, MemberTeamDto dto) {
+        switch (key) {
+            case USERNAME:
+                return dto.getUsername();
+            case AGE:
+                return dto.getAge();
+            case TEAM_NAME:
+                return dto.getTeamName();
+            default:
+                throw new IllegalArgumentException("정렬할 수 없는 필드입니다: " + key);
+        }
+    }
+
+    private Team findOrCreateTeam(EntityManager em, String teamName) {
+        Team found = new JPAQueryFactory(em)
+                .selectFrom(team)
+                .where(team.name.eq(teamName))
+                .fetchFirst();
+        if (found != null) {
+            return found;
+        }
+        Team created = new Team(teamName);
+        em.persist(created);
+        return created;
+    }
+
+    private <T> T inTransaction(int shard, Function<EntityManager, T> work) {
+        EntityManager em = emfs.get(shard).createEntityManager();
+        EntityTransaction tx = em.getTransaction();
+        try {
+            tx.begin();
+            T result = work.apply(em);
+            tx.commit();
+            return result;
+        } catch (RuntimeException e) {
+            if (tx.isActive()) {
+                tx.rollback();
+            }
+            throw e;
+        } finally {
+            em.close();
+        }
+    }
+
+    private <T> T read(int shard, Function<EntityManager, T> work) {
+        EntityManager em = emfs.get(shard).createEntityManager();
+        try {
+            return work.apply(em);
+        } finally {
+            em.close();
+        }
+    }
+
+    private <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("샤드 검색 중 인터럽트", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException
+                    ? (RuntimeException) e.getCause()
+                    : new IllegalStateException(e.getCause());
+        }
+    }
+
+    private QMemberTeamDto memberTeamDto() {
+        return new QMemberTeamDto(member.id, member.username, member.age, team.id, team.name);
+    }
+
+    @Override
+    public void destroy() {
+        fanOut.shutdownNow();
+        emfs.forEach(EntityManagerFactory::close);
+        for (DataSource dataSource : dataSources) {
+            if (dataSource instanceof Closeable) {
+                try {
+                    ((Closeable) dataSource).close();
+                } catch (IOException e) {
+                    log.warn("샤드 DataSource 종료 실패", e);
+                }
+            }
+        }
+    }
+
+    private static class PeekingIterator {
+
+        private final Iterator<MemberTeamDto> iterator;
+        private MemberTeamDto peeked;
+
+        PeekingIterator(Iterator<MemberTeamDto> iterator) {
+            this.iterator = iterator;
+            this.peeked = iterator.next();
+        }
+
+        MemberTeamDto peek() {
+            return peeked;
+        }
+
+        MemberTeamDto next() {
+            MemberTeamDto current = peeked;
+            peeked = iterator.hasNext() ? iterator.next() : null;
+            return current;
+        }
+
+        boolean hasNext() {
+            return peeked != null;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package study.querydsl.view;
+
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+import static study.querydsl.domain.QMember.member;
+import static study.querydsl.domain.QMemberTeamView.memberTeamView;
+import static study.querydsl.domain.QTeam.team;
+
+/**
+ * member_team_view 가 원본(member + team)과 같은지 검사한다.
+ * - missing: 원본에는 있는데 뷰에 없는 회원
+ * - stale: 뷰에만 있거나 값이 다른 회원
+ * 각각 sample-limit 건까지만 id 를 돌려준다. repair() 로 해당 id 만 다시 맞출 수 있다.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "member.view.enabled", havingValue = "true")
+public class MemberTeamViewConsistencyChecker {
+
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate transactionTemplate;
+    private final MemberTeamViewMaintainer maintainer;
+    private final int sampleLimit;
+
+    public MemberTeamViewConsistencyChecker(EntityManager em, PlatformTransactionManager txManager,
+                                            MemberTeamViewMaintainer maintainer,
+                                            @Value("${member.view.check-sample-limit:1000}") int sampleLimit) {
+        this.queryFactory = new JPAQueryFactory(em);
+        this.transactionTemplate = new TransactionTemplate(txManager);
+        this.maintainer = maintainer;
+        this.sampleLimit = sampleLimit;
+    }
+
+    @Getter
+    @ToString
+    @RequiredArgsConstructor
+    public static class Report {
+        private final long memberCount;
+        private final long viewCount;
+        private final List<Long> missing;
+        private final List<Long> stale;
+
+        public boolean isConsistent() {
+            return memberCount == viewCount && missing.isEmpty() && stale.isEmpty();
+        }
+    }
+
+    public Report check() {
+        Report report = transactionTemplate.execute(status -> {
+            Long memberCount = queryFactory.select(member.count()).from(member).fetchOne();
+            Long viewCount = queryFactory.select(memberTeamView.count()).from(memberTeamView).fetchOne();
+
+            List<Long> missing = queryFactory
+                    .select(member.id)
+                    .from(member)
+                    .where(JPAExpressions.selectOne()
+                            .from(memberTeamView)
+                            .where(memberTeamView.memberId.eq(member.id))
+                            .notExists())
+                    .orderBy(member.id.asc())
+                    .limit(sampleLimit)
+                    .fetch();
+
+            //뷰 행과 값까지 똑같은 원본 행이 없으면 stale (원본에서 지워진 행 포함)
+            List<Long> stale = queryFactory
+                    .select(memberTeamView.memberId)
+                    .from(memberTeamView)
+                    .where(JPAExpressions.selectOne()
+                            .from(member)
+                            .leftJoin(member.team, team)
+                            .where(member.id.eq(memberTeamView.memberId),
+                                    member.username.eq(memberTeamView.username),
+                                    member.age.eq(memberTeamView.age),
+                                    nullSafeEq(team.id.isNull(), memberTeamView.teamId.isNull(), team.id.eq(memberTeamView.teamId)),
+                                    nullSafeEq(team.name.isNull(), memberTeamView.teamName.isNull(), team.name.eq(memberTeamView.teamName)))
+                            .notExists())
+                    .orderBy(memberTeamView.memberId.asc())
+                    .limit(sampleLimit)
+                    .fetch();
+
+            return new Report(memberCount == null ? 0 : memberCount, viewCount == null ? 0 : viewCount, missing, stale);
+        });
+        if (!report.isConsistent()) {
+            log.warn("member_team_view 불일치 {}", report);
+        }
+        return report;
+    }
+
+    //샘플로 찾은 id 만 다시 맞춘다. 샘플 한도를 넘을 만큼 어긋났으면 재구축이 낫다.
+    public void repair(Report report) {
+        List<Long> ids = new ArrayList<>(report.getMissing());
+        ids.addAll(report.getStale());
+        transactionTemplate.executeWithoutResult(status -> maintainer.refreshMembers(ids));
+        if (report.getMissing().size() >= sampleLimit || report.getStale().size() >= sampleLimit) {
+            maintainer.requestRebuild();
+        }
+    }
+
+    private BooleanExpression nullSafeEq(BooleanExpression leftNull, BooleanExpression rightNull, BooleanExpression eq) {
+        return leftNull.and(rightNull).or(eq);
+    }
+}
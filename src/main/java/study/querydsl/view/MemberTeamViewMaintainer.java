@@ -0,0 +1,214 @@
+package study.querydsl.view;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.domain.ChangeType;
+import study.querydsl.domain.MemberTeamView;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.outbox.ChangeRecord;
+import study.querydsl.outbox.OutboxSubscriber;
+
+import javax.persistence.EntityManager;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static study.querydsl.domain.QMember.member;
+import static study.querydsl.domain.QMemberTeamView.memberTeamView;
+import static study.querydsl.domain.QTeam.team;
+
+/**
+ * member_team_view 유지
+ * - 증분: 아웃박스 relay 트랜잭션 안에서 바뀐 회원만 원본에서 다시 읽어 반영한다. (이벤트 순서와 무관하게 현재 상태로 맞춤)
+ *   팀 이름 변경/삭제는 그 팀 회원 행 전체에 퍼뜨린다.
+ * - 벌크 연산 이벤트는 어떤 행이 바뀌었는지 모르므로 재구축을 예약하고, 재구축이 끝날 때까지 뷰 검색을 멈춘다(isServing() == false).
+ * - 재구축은 테이블을 비우지 않고 id 순서로 청크마다 덮어쓴다. (in-place, 그동안 읽기는 계속 가능)
+ */
+@Slf4j
+@Component
+@Lazy(false)
+@ConditionalOnProperty(name = "member.view.enabled", havingValue = "true")
+public class MemberTeamViewMaintainer implements OutboxSubscriber {
+
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final ReentrantLock writeLock = new ReentrantLock(); //증분 반영과 재구축 청크가 같은 행을 엇갈려 쓰지 않도록
+
+    //요청 세대와 완료 세대가 같을 때만 뷰를 쓴다. 재구축 도중이나 재구축 중에 새 요청이 들어오면 조인 검색으로 돌아간다.
+    private final AtomicLong requestedGeneration = new AtomicLong(1); //처음에는 뷰가 비어 있으므로 한 번 만든다.
+    private volatile long builtGeneration = 0;
+
+    public MemberTeamViewMaintainer(EntityManager em, PlatformTransactionManager txManager,
+                                    @Value("${member.view.rebuild-chunk-size:1000}") int chunkSize) {
+        this.em = em;
+        this.queryFactory = new JPAQueryFactory(em);
+        this.transactionTemplate = new TransactionTemplate(txManager);
+        this.chunkSize = chunkSize;
+    }
+
+    public boolean isServing() {
+        return builtGeneration == requestedGeneration.get();
+    }
+
+    @Override
+    public void onChanges(List<ChangeRecord> records) {
+        Set<Long> memberIds = new LinkedHashSet<>();
+        Set<Long> teamIds = new LinkedHashSet<>();
+        for (ChangeRecord record : records) {
+            if (record.getChangeType() == ChangeType.BULK_UPDATE || record.getChangeType() == ChangeType.BULK_DELETE) {
+                requestRebuild();
+            } else if ("Member".equals(record.getAggregateType())) {
+                memberIds.add(record.getAggregateId());
+            } else if ("Team".equals(record.getAggregateType()) && record.getChangeType() != ChangeType.INSERT) {
+                teamIds.add(record.getAggregateId());
+            }
+        }
+
+        writeLock.lock();
+        try {
+            refreshMembers(memberIds);
+            teamIds.forEach(this::refreshTeam);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void requestRebuild() {
+        requestedGeneration.incrementAndGet();
+    }
+
+    @Scheduled(fixedDelayString = "${member.view.rebuild-check-ms:1000}", initialDelayString = "${member.view.rebuild-initial-delay-ms:1000}")
+    public void rebuildIfRequested() {
+        if (!isServing()) {
+            rebuild();
+        }
+    }
+
+    /**
+     * @return 반영한 회원 수
+     */
+    public long rebuild() {
+        long generation = requestedGeneration.get(); //재구축 도중 들어온 벌크 이벤트는 세대를 올린다 -> 끝나도 serving 아님, 한 번 더
+        long start = System.nanoTime();
+        long lastId = Long.MIN_VALUE;
+        long total = 0;
+        while (true) {
+            long after = lastId;
+            List<MemberTeamDto> chunk = inChunkTransaction(() -> {
+                List<MemberTeamDto> rows = queryFactory
+                        .select(memberTeamDto())
+                        .from(member)
+                        .leftJoin(member.team, team)
+                        .where(member.id.gt(after))
+                        .orderBy(member.id.asc())
+                        .limit(chunkSize)
+                        .fetch();
+                long to = rows.size() < chunkSize ? Long.MAX_VALUE : rows.get(rows.size() - 1).getMemberId();
+                upsert(rows);
+                //원본에서 사라진 행 정리 (이 청크 범위 안에서)
+                queryFactory.delete(memberTeamView)
+                        .where(memberTeamView.memberId.gt(after),
+                                memberTeamView.memberId.loe(to),
+                                rows.isEmpty() ? null : memberTeamView.memberId.notIn(ids(rows)))
+                        .execute();
+                return rows;
+            });
+            total += chunk.size();
+            if (chunk.size() < chunkSize) {
+                break;
+            }
+            lastId = chunk.get(chunk.size() - 1).getMemberId();
+        }
+        builtGeneration = Math.max(builtGeneration, generation);
+        log.info("member_team_view 재구축 rows={} {}ms", total, (System.nanoTime() - start) / 1_000_000);
+        return total;
+    }
+
+    ReentrantLock getWriteLock() { //테스트에서 재구축 도중 상태를 보기 위해
+        return writeLock;
+    }
+
+    private List<MemberTeamDto> inChunkTransaction(Supplier<List<MemberTeamDto>> work) {
+        writeLock.lock();
+        try {
+            return transactionTemplate.execute(status -> work.get());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 회원 id 목록을 원본 현재 상태로 맞춘다. 원본에 없으면 뷰에서도 지운다.
+     */
+    void refreshMembers(Collection<Long> memberIds) {
+        if (memberIds.isEmpty()) {
+            return;
+        }
+        List<MemberTeamDto> rows = queryFactory
+                .select(memberTeamDto())
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(member.id.in(memberIds))
+                .fetch();
+        upsert(rows);
+
+        Set<Long> gone = new HashSet<>(memberIds);
+        gone.removeAll(ids(rows));
+        if (!gone.isEmpty()) {
+            queryFactory.delete(memberTeamView).where(memberTeamView.memberId.in(gone)).execute();
+        }
+    }
+
+    //팀 이름 변경 -> 그 팀 회원 행 전체, 팀 삭제 -> 팀 정보를 비운다.
+    private void refreshTeam(Long teamId) {
+        String name = queryFactory.select(team.name).from(team).where(team.id.eq(teamId)).fetchOne();
+        boolean exists = name != null || queryFactory.selectOne().from(team).where(team.id.eq(teamId)).fetchFirst() != null;
+        queryFactory.update(memberTeamView)
+                .set(memberTeamView.teamName, name)
+                .set(memberTeamView.teamId, exists ? teamId : null)
+                .where(memberTeamView.teamId.eq(teamId))
+                .execute();
+    }
+
+    private void upsert(List<MemberTeamDto> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        Map<Long, MemberTeamView> existing = queryFactory
+                .selectFrom(memberTeamView)
+                .where(memberTeamView.memberId.in(ids(rows)))
+                .fetch()
+                .stream()
+                .collect(Collectors.toMap(MemberTeamView::getMemberId, Function.identity()));
+
+        for (MemberTeamDto row : rows) {
+            MemberTeamView view = existing.get(row.getMemberId());
+            if (view == null) {
+                em.persist(new MemberTeamView(row.getMemberId(), row.getUsername(), row.getAge(), row.getTeamId(), row.getTeamName()));
+            } else if (!view.sameAs(row.getUsername(), row.getAge(), row.getTeamId(), row.getTeamName())) {
+                view.copy(row.getUsername(), row.getAge(), row.getTeamId(), row.getTeamName()); //dirty checking
+            }
+        }
+    }
+
+    private List<Long> ids(List<MemberTeamDto> rows) {
+        return rows.stream().map(MemberTeamDto::getMemberId).collect(Collectors.toList());
+    }
+
+    private QMemberTeamDto memberTeamDto() {
+        return new QMemberTeamDto(member.id, member.username, member.age, team.id, team.name);
+    }
+}
@@ -0,0 +1,85 @@
+package study.querydsl;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.metrics.StartupStep;
+import study.querydsl.repository.QueryPlanPrewarmer;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * 기본 설정과 fast 프로필의 기동 시간을 단계별로 비교한다.
+ * fast 는 ddl-auto=validate 라서 먼저 기본 설정(create)으로 같은 in-memory DB 에 스키마를 만들어 둔다.
+ */
+class StartupTimingTest {
+
+    private static final String[] COMMON_ARGS = {
+            "--spring.datasource.url=jdbc:h2:mem:startup;DB_CLOSE_DELAY=-1",
+            "--server.port=0",
+            "--member.warmup.enabled=false" //warm-up 은 기동 이후 백그라운드 작업이라 측정에서 뺀다.
+    };
+
+    @Test
+    public void compareStartupPhases() {
+        long defaultMillis = start("default");
+        long fastMillis = start("fast");
+
+        System.out.println("startup default=" + defaultMillis + "ms, fast=" + fastMillis + "ms");
+    }
+
+    private long start(String profile) {
+        SpringApplication application = new SpringApplication(QuerydslApplication.class);
+        BufferingApplicationStartup startup = new BufferingApplicationStartup(20_000);
+        application.setApplicationStartup(startup);
+        if (!profile.equals("default")) {
+            application.setAdditionalProfiles(profile);
+        }
+
+        long begin = System.nanoTime();
+        try (ConfigurableApplicationContext context = application.run(COMMON_ARGS)) {
+            long millis = (System.nanoTime() - begin) / 1_000_000;
+            report(profile, millis, startup.getBufferedTimeline());
+
+            if (profile.equals("fast")) {
+                assertThat(context.getBean(QueryPlanPrewarmer.class).prewarm()).isEqualTo(16);
+            }
+            return millis;
+        }
+    }
+
+    private void report(String profile, long totalMillis, StartupTimeline timeline) {
+        //같은 이름의 단계는 합친다. (spring.beans.instantiate 는 중첩되므로 합계가 전체보다 클 수 있다)
+        Map<String, Long> phases = timeline.getEvents().stream()
+                .collect(Collectors.groupingBy(e -> e.getStartupStep().getName(),
+                        LinkedHashMap::new, Collectors.summingLong(e -> e.getDuration().toMillis())));
+        System.out.println("[" + profile + "] total=" + totalMillis + "ms");
+        phases.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(8)
+                .forEach(e -> System.out.println("[" + profile + "]   " + e.getKey() + " = " + e.getValue() + "ms"));
+
+        timeline.getEvents().stream()
+                .filter(e -> e.getStartupStep().getName().equals("spring.beans.instantiate"))
+                .sorted(Comparator.comparing(StartupTimeline.TimelineEvent::getDuration).reversed())
+                .limit(5)
+                .forEach(e -> System.out.println("[" + profile + "]   bean " + beanName(e.getStartupStep())
+                        + " = " + e.getDuration().toMillis() + "ms"));
+    }
+
+    private String beanName(StartupStep step) {
+        for (StartupStep.Tag tag : step.getTags()) {
+            if (tag.getKey().equals("beanName")) {
+                return tag.getValue();
+            }
+        }
+        return "?";
+    }
+}
@@ -0,0 +1,75 @@
+package study.querydsl.archive;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.domain.ArchivedMember;
+import study.querydsl.domain.Member;
+import study.querydsl.domain.Team;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "member.archive.enabled=true",
+        "member.archive.age-goe=1000", //다른 테스트/더미 데이터와 겹치지 않는 나이
+        "member.archive.chunk-size=7", //청크 경계를 여러 번 지나도록
+        "member.archive.pause-ms=0"
+})
+@Transactional
+class MemberArchiveJobTest {
+
+    @Autowired EntityManager em;
+    @Autowired MemberArchiveJob archiveJob;
+    @Autowired MemberRepository memberRepository;
+
+    @BeforeEach
+    public void before() {
+        Team team = new Team("archiveTeam");
+        em.persist(team);
+        for (int i = 0; i < 20; i++) {
+            em.persist(new Member("archive" + i, i % 2 == 0 ? 1000 + i : 900 + i, team)); //짝수만 보관 대상
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void coldMembersAreMovedInChunks() {
+        long moved = archiveJob.archive();
+        em.clear();
+
+        assertThat(moved).isEqualTo(10);
+        List<ArchivedMember> archived = em.createQuery("select a from ArchivedMember a where a.age >= 1000", ArchivedMember.class)
+                .getResultList();
+        assertThat(archived).hasSize(10);
+        assertThat(em.createQuery("select count(m) from Member m where m.age >= 1000", Long.class).getSingleResult())
+                .isZero();
+    }
+
+    @Test
+    public void searchUsesHotTierUnlessArchiveIsRequested() {
+        archiveJob.archive();
+        em.clear();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("archiveTeam");
+
+        assertThat(memberRepository.search(condition)).hasSize(10)
+                .extracting(MemberTeamDto::getAge).allMatch(age -> age < 1000);
+
+        condition.setIncludeArchive(true);
+        List<MemberTeamDto> all = memberRepository.search(condition);
+
+        assertThat(all).hasSize(20);
+        assertThat(all).extracting(MemberTeamDto::getTeamName).containsOnly("archiveTeam");
+        assertThat(all).extracting(MemberTeamDto::getMemberId).isSorted(); //병합 결과는 id 순
+    }
+}
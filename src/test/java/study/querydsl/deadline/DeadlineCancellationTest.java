@@ -0,0 +1,127 @@
+package study.querydsl.deadline;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.h2.api.Trigger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * 실제 톰캣 + DeadlineInterceptor 를 거쳐서, 예산을 넘긴 H2 쿼리가 취소되는지 본다.
+ * 데이터 양으로 느린 쿼리를 만들지 않고, member 의 BEFORE SELECT 트리거가 요청의 Deadline 이 취소될 때까지 statement 를 붙잡는다.
+ * 트리거가 풀린 뒤 H2 가 행을 읽다가 취소 플래그를 보고 statement 를 끊는다.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:deadline;DB_CLOSE_DELAY=-1"
+})
+class DeadlineCancellationTest {
+
+    private static final int MEMBERS = 10_000; //H2 는 수백 행마다 취소 여부를 확인하므로 그보다 넉넉하게
+
+    @LocalServerPort int port;
+    @Autowired EntityManager em;
+    @Autowired PlatformTransactionManager txManager;
+    @Autowired MeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void seed() {
+        //요청 쓰레드에서 보이도록 커밋한다. (DB 는 이 테스트 클래스 전용)
+        new TransactionTemplate(txManager).executeWithoutResult(status -> {
+            if (em.createQuery("select count(m) from Member m", Long.class).getSingleResult() > 0) {
+                return;
+            }
+            em.createNativeQuery("insert into team (team_id, name, version)" +
+                    " select x, 'deadlineTeam' || x, 0 from system_range(1, 10)").executeUpdate();
+            em.createNativeQuery("insert into member (member_id, username, age, version, team_id)" +
+                    " select x, 'deadline' || x, mod(x, 100), 0, mod(x, 10) + 1 from system_range(1, " + MEMBERS + ")").executeUpdate();
+        });
+        new TransactionTemplate(txManager).executeWithoutResult(status ->
+                em.createNativeQuery("create trigger if not exists member_hold_until_cancelled before select on member" +
+                        " call \"" + HoldUntilCancelled.class.getName() + "\"").executeUpdate());
+    }
+
+    @AfterEach
+    public void dropTrigger() {
+        new TransactionTemplate(txManager).executeWithoutResult(status ->
+                em.createNativeQuery("drop trigger if exists member_hold_until_cancelled").executeUpdate());
+    }
+
+    @Test
+    public void longQueryIsCancelledAndReportedAsGatewayTimeout() throws Exception {
+        double timeoutsBefore = count("member.query.timeouts");
+        double cancellationsBefore = count("member.query.cancellations");
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/v1/members/facets?facets=TEAM,AGE_DECADE"))
+                .header(DeadlineInterceptor.DEADLINE_HEADER, "50")
+                .timeout(Duration.ofSeconds(30))
+                .build();
+        HttpResponse<String> response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
+
+        assertThat(response.statusCode()).isEqualTo(504);
+
+        //afterCompletion 은 응답을 보낸 뒤에 돌 수 있다.
+        long waitUntil = System.nanoTime() + 5_000_000_000L;
+        while ((count("member.query.timeouts") == timeoutsBefore || count("member.query.cancellations") == cancellationsBefore)
+                && System.nanoTime() < waitUntil) {
+            Thread.sleep(10);
+        }
+        assertThat(count("member.query.timeouts")).isEqualTo(timeoutsBefore + 1);
+        assertThat(count("member.query.cancellations")).isEqualTo(cancellationsBefore + 1);
+    }
+
+    private double count(String name) {
+        return meterRegistry.counter(name).count();
+    }
+
+    /**
+     * 요청 쓰레드(Deadline 이 열린 쓰레드)의 select 만 Deadline 이 취소될 때까지 붙잡는다. 임베디드 H2 는 호출 쓰레드에서 트리거를 실행한다.
+     * 그 밖의 쓰레드(시드, 백그라운드 작업)는 그대로 통과한다.
+     */
+    public static class HoldUntilCancelled implements Trigger {
+
+        @Override
+        public void init(Connection conn, String schemaName, String triggerName, String tableName, boolean before, int type) {
+        }
+
+        @Override
+        public void fire(Connection conn, Object[] oldRow, Object[] newRow) {
+            Deadline deadline = Deadline.current();
+            if (deadline == null) {
+                return;
+            }
+            long giveUpAt = System.nanoTime() + TimeUnit.SECONDS.toNanos(10); //취소가 안 오면 테스트가 504 가 아니라서 실패한다.
+            while (!deadline.isCancelled() && System.nanoTime() < giveUpAt) {
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public void remove() {
+        }
+    }
+}
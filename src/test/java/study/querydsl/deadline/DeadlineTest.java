@@ -0,0 +1,83 @@
+package study.querydsl.deadline;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.domain.Member;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.*;
+import static study.querydsl.domain.QMember.member;
+
+@SpringBootTest
+@Transactional
+class DeadlineTest {
+
+    @Autowired EntityManager em;
+    @Autowired MemberRepository memberRepository;
+    @Autowired DeadlineProperties properties;
+
+    @AfterEach
+    public void clear() {
+        Deadline.clear();
+    }
+
+    @Test
+    public void remainingBudgetBecomesQueryTimeout() {
+        Deadline.open(1500);
+
+        org.hibernate.query.Query<?> query = new DeadlineQueryFactory(em)
+                .selectFrom(member)
+                .createQuery()
+                .unwrap(org.hibernate.query.Query.class);
+
+        assertThat(query.getTimeout()).isEqualTo(2); //1.5초 -> 올림
+    }
+
+    @Test
+    public void noDeadlineMeansNoTimeout() {
+        org.hibernate.query.Query<?> query = new DeadlineQueryFactory(em)
+                .selectFrom(member)
+                .createQuery()
+                .unwrap(org.hibernate.query.Query.class);
+
+        assertThat(query.getTimeout()).isNull();
+    }
+
+    @Test
+    public void expiredDeadlineFailsBeforeSendingQuery() {
+        Deadline.open(0);
+
+        assertThatThrownBy(() -> memberRepository.search(new MemberSearchCondition()))
+                .isInstanceOf(QueryTimeoutException.class);
+    }
+
+    @Test
+    public void cancelledDeadlineStopsFurtherQueries() {
+        em.persist(new Member("deadline1", 10));
+        Deadline deadline = Deadline.open(10_000);
+        memberRepository.search(new MemberSearchCondition()); //쓰레드에 묶인 세션을 잡는다.
+
+        deadline.cancel(); //실행 중인 쿼리가 없으면 아무 일도 하지 않는다.
+
+        assertThat(deadline.isCancelled()).isTrue();
+        assertThatThrownBy(() -> memberRepository.search(new MemberSearchCondition()))
+                .isInstanceOf(QueryTimeoutException.class);
+    }
+
+    @Test
+    public void headerBudgetIsClampedToMax() {
+        DeadlineInterceptor interceptor = new DeadlineInterceptor(properties, null, null, null);
+
+        assertThat(interceptor.budgetMillis(null)).isEqualTo(properties.getDefaultMs());
+        assertThat(interceptor.budgetMillis("250")).isEqualTo(250);
+        assertThat(interceptor.budgetMillis("abc")).isEqualTo(properties.getDefaultMs());
+        assertThat(interceptor.budgetMillis(String.valueOf(properties.getMaxMs() * 10))).isEqualTo(properties.getMaxMs());
+    }
+}
@@ -0,0 +1,82 @@
+package study.querydsl.entity;
+
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.domain.Member;
+import study.querydsl.domain.Team;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest
+@Transactional
+class TeamMembersTest {
+
+    private static final int TEAM_SIZE = 10_000;
+
+    @Autowired EntityManager em;
+    @Autowired MemberRepository memberRepository;
+
+    @Test
+    public void changeTeamOfLargeTeams() {
+        Team teamA = new Team("largeA");
+        Team teamB = new Team("largeB");
+        em.persist(teamA);
+        em.persist(teamB);
+        for (int i = 0; i < TEAM_SIZE; i++) {
+            em.persist(new Member("largeA" + i, i % 100, teamA));
+            em.persist(new Member("largeB" + i, i % 100, teamB));
+            if (i % 1000 == 0) {
+                em.flush();
+                em.clear();
+                teamA = em.find(Team.class, teamA.getId());
+                teamB = em.find(Team.class, teamB.getId());
+            }
+        }
+        em.flush();
+        em.clear();
+
+        Team from = em.find(Team.class, teamA.getId()); //팀 엔티티는 로딩되어 있지만 members는 아직 로딩 전
+        Team to = em.find(Team.class, teamB.getId());
+        List<Member> members = em.createQuery("select m from Member m where m.team = :team", Member.class)
+                .setParameter("team", from)
+                .getResultList();
+
+        long start = System.nanoTime();
+        for (Member member : members) {
+            member.changeTeam(to);
+        }
+        em.flush();
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        System.out.println("changeTeam members=" + members.size() + " elapsed=" + elapsedMs + "ms");
+
+        //두 팀 모두 회원 컬렉션을 읽지 않았어야 한다.
+        assertThat(Hibernate.isInitialized(from.getMembers())).isFalse();
+        assertThat(Hibernate.isInitialized(to.getMembers())).isFalse();
+
+        //EXTRA lazy -> size()도 count 쿼리로 처리된다.
+        assertThat(to.getMembers().size()).isEqualTo(TEAM_SIZE * 2);
+        assertThat(Hibernate.isInitialized(to.getMembers())).isFalse();
+
+        assertThat(memberRepository.countByTeamId(from.getId())).isZero();
+        assertThat(memberRepository.countByTeamId(to.getId())).isEqualTo(TEAM_SIZE * 2);
+    }
+
+    @Test
+    public void changeTeamKeepsLoadedCollectionsInSync() {
+        Team teamA = new Team("syncA");
+        Team teamB = new Team("syncB");
+        Member member = new Member("sync", 10, teamA);
+
+        member.changeTeam(teamB);
+
+        assertThat(teamA.getMembers()).isEmpty();
+        assertThat(teamB.getMembers()).containsExactly(member);
+    }
+}
@@ -0,0 +1,35 @@
+package study.querydsl.limit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    public void burstOfSlowResponsesBacksOffOnce() throws InterruptedException {
+        LimiterProperties properties = new LimiterProperties();
+        properties.setInitialLimit(100);
+        properties.setLatencyThresholdMs(1);
+        properties.setBackoffRatio(0.5);
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(properties);
+
+        //같은 과부하 구간에 시작한 요청 10개가 모두 느리게 끝난다.
+        long start = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            assertThat(limiter.tryAcquire(RequestPriority.INTERACTIVE)).isTrue();
+        }
+        Thread.sleep(5);
+        for (int i = 0; i < 10; i++) {
+            limiter.release(System.nanoTime() - start, true);
+        }
+        assertThat(limiter.getLimit()).isEqualTo(50); //0.5^10 이 아니라 한 번만
+
+        //줄인 뒤에 시작한 요청이 또 느리면 다시 줄인다.
+        long next = System.nanoTime();
+        assertThat(limiter.tryAcquire(RequestPriority.INTERACTIVE)).isTrue();
+        Thread.sleep(5);
+        limiter.release(System.nanoTime() - next, false);
+        assertThat(limiter.getLimit()).isEqualTo(25);
+    }
+}
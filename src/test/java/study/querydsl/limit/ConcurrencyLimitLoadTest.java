@@ -0,0 +1,145 @@
+package study.querydsl.limit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.domain.Member;
+import study.querydsl.domain.Team;
+
+import javax.persistence.EntityManager;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * 내장(in-memory) H2 + 실제 톰캣에 동시 요청을 퍼부어 보는 부하 테스트
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:limiter;DB_CLOSE_DELAY=-1",
+        "member.search.limit.initial-limit=4",
+        "member.search.limit.max-limit=4",
+        "member.search.limit.min-limit=2"
+})
+class ConcurrencyLimitLoadTest {
+
+    private static final int CLIENTS = 32;
+    private static final int REQUESTS_PER_CLIENT = 25;
+
+    @LocalServerPort int port;
+    @Autowired EntityManager em;
+    @Autowired PlatformTransactionManager txManager;
+    @Autowired AdaptiveConcurrencyLimiter limiter;
+
+    @Test
+    public void shedsLoadWithFastRejections() throws Exception {
+        seed();
+        HttpClient client = HttpClient.newHttpClient();
+        Map<Integer, AtomicInteger> statuses = new ConcurrentHashMap<>();
+        ConcurrentLinkedQueue<Long> acceptedMillis = new ConcurrentLinkedQueue<>();
+        ConcurrentLinkedQueue<Long> rejectedMillis = new ConcurrentLinkedQueue<>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(CLIENTS);
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> clients = new ArrayList<>();
+            for (int c = 0; c < CLIENTS; c++) {
+                String priority = c % 4 == 0 ? "export" : "interactive";
+                clients.add(executor.submit(() -> {
+                    for (int i = 0; i < REQUESTS_PER_CLIENT; i++) {
+                        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/v1/members?ageGoe=" + (i % 50)))
+                                .header(ConcurrencyLimitInterceptor.PRIORITY_HEADER, priority)
+                                .build();
+                        long sent = System.nanoTime();
+                        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                        long millis = (System.nanoTime() - sent) / 1_000_000;
+                        statuses.computeIfAbsent(response.statusCode(), s -> new AtomicInteger()).incrementAndGet();
+                        (response.statusCode() == 200 ? acceptedMillis : rejectedMillis).add(millis);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : clients) {
+                f.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        long totalMillis = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.println("statuses = " + statuses + " total=" + totalMillis + "ms limit=" + limiter.getLimit());
+        System.out.println("accepted p99 = " + p99(acceptedMillis) + "ms, rejected p99 = " + p99(rejectedMillis) + "ms");
+        System.out.println("rejected interactive=" + limiter.getRejected(RequestPriority.INTERACTIVE)
+                + " export=" + limiter.getRejected(RequestPriority.EXPORT));
+
+        assertThat(statuses.keySet()).isSubsetOf(200, 429, 503);
+        assertThat(statuses.get(200)).isNotNull();
+        assertThat(limiter.getRejected(RequestPriority.INTERACTIVE) + limiter.getRejected(RequestPriority.EXPORT)).isPositive();
+        assertThat(limiter.getInFlight()).isZero();
+        assertThat(limiter.getLimit()).isBetween(2, 4);
+    }
+
+    @Test
+    public void aimdBacksOffOnSlowResponsesAndRecovers() {
+        LimiterProperties properties = new LimiterProperties();
+        properties.setInitialLimit(10);
+        properties.setMinLimit(2);
+        properties.setMaxLimit(20);
+        properties.setLatencyThresholdMs(100);
+        AdaptiveConcurrencyLimiter aimd = new AdaptiveConcurrencyLimiter(properties);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(aimd.tryAcquire(RequestPriority.INTERACTIVE)).isTrue();
+        }
+        assertThat(aimd.tryAcquire(RequestPriority.INTERACTIVE)).isFalse();
+        assertThat(aimd.tryAcquire(RequestPriority.EXPORT)).isFalse(); //EXPORT 는 절반(5)까지만
+
+        for (int i = 0; i < 10; i++) {
+            aimd.release(500_000_000L, true); //느린 응답 -> 감소
+        }
+        assertThat(aimd.getLimit()).isLessThan(10);
+
+        int backedOff = aimd.getLimit();
+        for (int round = 0; round < 50; round++) {
+            int n = aimd.getLimit();
+            for (int i = 0; i < n; i++) {
+                aimd.tryAcquire(RequestPriority.INTERACTIVE);
+            }
+            for (int i = 0; i < n; i++) {
+                aimd.release(1_000_000L, true); //빠른 응답 -> 증가
+            }
+        }
+        assertThat(aimd.getLimit()).isGreaterThan(backedOff).isLessThanOrEqualTo(20);
+    }
+
+    private void seed() {
+        new TransactionTemplate(txManager).executeWithoutResult(status -> {
+            for (int t = 0; t < 10; t++) {
+                Team team = new Team("load" + t);
+                em.persist(team);
+                for (int i = 0; i < 200; i++) {
+                    em.persist(new Member("load" + t + "_" + i, i % 60, team));
+                }
+            }
+        });
+    }
+
+    private long p99(ConcurrentLinkedQueue<Long> millis) {
+        long[] sorted = millis.stream().mapToLong(Long::longValue).sorted().toArray();
+        return sorted.length == 0 ? 0 : sorted[(int) Math.ceil(sorted.length * 0.99) - 1];
+    }
+}
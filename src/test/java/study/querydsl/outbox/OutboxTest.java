@@ -0,0 +1,115 @@
+package study.querydsl.outbox;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.domain.ChangeType;
+import study.querydsl.domain.Member;
+import study.querydsl.domain.Team;
+import study.querydsl.repository.MemberJpaRepository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:outbox;DB_CLOSE_DELAY=-1" //커밋한 데이터가 공유 DB 에 남아 다른 테스트를 깨지 않도록
+})
+class OutboxTest { //커밋되어야 아웃박스에 기록되므로 @Transactional을 붙이지 않는다.
+
+    @Autowired EntityManager em;
+    @Autowired MemberJpaRepository memberJpaRepository;
+    @Autowired OutboxRelay outboxRelay;
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired CollectingSubscriber subscriber;
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        CollectingSubscriber collectingSubscriber() {
+            return new CollectingSubscriber();
+        }
+    }
+
+    static class CollectingSubscriber implements OutboxSubscriber {
+        final List<ChangeRecord> received = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void onChanges(List<ChangeRecord> records) {
+            received.addAll(records);
+        }
+    }
+
+    @Test
+    public void changeTeamIsRecorded() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        Member saved = tx.execute(status -> {
+            Team teamA = new Team("outboxA");
+            Team teamB = new Team("outboxB");
+            em.persist(teamA);
+            em.persist(teamB);
+
+            Member member = new Member("outboxMember", 10, teamA);
+            em.persist(member);
+            em.flush();
+
+            member.changeTeam(teamB); //flush 시점에 UPDATE(teamId)로 기록되어야 한다.
+            return member;
+        });
+
+        drain();
+
+        assertThat(subscriber.received)
+                .filteredOn(r -> "Member".equals(r.getAggregateType()) && saved.getId().equals(r.getAggregateId()))
+                .extracting(ChangeRecord::getChangeType)
+                .containsExactly(ChangeType.INSERT, ChangeType.UPDATE);
+
+        ChangeRecord update = subscriber.received.stream()
+                .filter(r -> saved.getId().equals(r.getAggregateId()) && r.getChangeType() == ChangeType.UPDATE)
+                .findFirst().get();
+        assertThat(((Number) update.getState().get("teamId")).longValue()).isEqualTo(saved.getTeam().getId());
+    }
+
+    @Test
+    public void rollbackIsNotRecorded() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        tx.executeWithoutResult(status -> {
+            em.persist(new Member("rollbackMember", 10));
+            em.flush();
+            status.setRollbackOnly();
+        });
+
+        drain();
+
+        assertThat(subscriber.received)
+                .extracting(r -> r.getState().get("username"))
+                .doesNotContain("rollbackMember");
+    }
+
+    @Test
+    public void bulkUpdateIsRecordedAsRange() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        tx.executeWithoutResult(status -> memberJpaRepository.bulkAgePlus(1000));
+
+        drain();
+
+        assertThat(subscriber.received)
+                .filteredOn(r -> r.getChangeType() == ChangeType.BULK_UPDATE)
+                .extracting(r -> r.getState().get("where"))
+                .contains("member1.age >= 1000");
+    }
+
+    private void drain() {
+        while (outboxRelay.relayOnce() > 0) {
+        }
+    }
+}
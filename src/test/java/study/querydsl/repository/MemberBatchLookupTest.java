@@ -0,0 +1,98 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.domain.Member;
+import study.querydsl.domain.Team;
+import study.querydsl.dto.IdBatchResult;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.sql.SqlCapture;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "member.batch.max-in-size=4", //작은 청크로 나눠지는지 확인
+        "member.batch.parallelism=2"
+})
+@Transactional
+class MemberBatchLookupTest {
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        SqlCapture sqlCapture() {
+            return new SqlCapture();
+        }
+    }
+
+    @Autowired EntityManager em;
+    @Autowired MemberJpaRepository memberJpaRepository;
+    @Autowired SqlCapture sqlCapture;
+
+    List<Long> ids = new ArrayList<>();
+
+    @BeforeEach
+    public void before() {
+        Team team = new Team("batchTeam");
+        em.persist(team);
+        for (int i = 0; i < 10; i++) {
+            Member member = new Member("batch" + i, i, i % 2 == 0 ? team : null);
+            em.persist(member);
+            ids.add(member.getId());
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void resultsFollowInputOrderAndReportMissing() {
+        List<Long> request = List.of(ids.get(7), -1L, ids.get(2), ids.get(7), ids.get(0), -2L);
+
+        IdBatchResult<Member> result = memberJpaRepository.findAllByIds(request);
+
+        assertThat(result.getFound()).extracting("username").containsExactly("batch7", "batch2", "batch0");
+        assertThat(result.getMissing()).containsExactly(-1L, -2L);
+    }
+
+    @Test
+    public void largeIdListIsSplitIntoChunks() {
+        sqlCapture.start();
+        IdBatchResult<MemberTeamDto> result = memberJpaRepository.findTeamDtosByIds(ids);
+        List<String> statements = sqlCapture.stop();
+
+        assertThat(result.getFound()).extracting(MemberTeamDto::getMemberId).containsExactlyElementsOf(ids);
+        assertThat(result.getFound()).filteredOn(dto -> dto.getTeamId() != null)
+                .extracting(MemberTeamDto::getTeamName).containsOnly("batchTeam");
+        assertThat(statements).hasSize(3); //4 + 4 + 2
+    }
+
+    @Test
+    public void managedMembersAreNotQueriedAgain() {
+        List<Member> loaded = memberJpaRepository.findAllByIds(ids.subList(0, 3)).getFound();
+
+        sqlCapture.start();
+        IdBatchResult<Member> result = memberJpaRepository.findAllByIds(ids.subList(0, 3));
+        List<String> statements = sqlCapture.stop();
+
+        assertThat(statements).isEmpty();
+        assertThat(result.getFound()).containsExactlyElementsOf(loaded); //같은 인스턴스
+    }
+
+    @Test
+    public void chunksArePaddedToPowerOfTwo() {
+        List<List<Long>> chunks = InListChunker.chunks(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L), 4);
+
+        assertThat(chunks).containsExactly(List.of(1L, 2L, 3L, 4L), List.of(5L, 6L, 7L, 7L));
+        assertThat(InListChunker.paddedSize(5)).isEqualTo(8);
+        assertThat(InListChunker.paddedSize(8)).isEqualTo(8);
+    }
+}
@@ -0,0 +1,112 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.domain.ChangeType;
+import study.querydsl.domain.Member;
+import study.querydsl.domain.Team;
+import study.querydsl.dto.CountEstimate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.outbox.ChangeRecord;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "member.count.exact-threshold=100" //스케줄러는 꺼져 있으므로(scheduling.enabled=false) 테스트에서 직접 refresh
+})
+@Transactional
+class MemberCountEstimatorTest {
+
+    @Autowired EntityManager em;
+    @Autowired MemberCountEstimator estimator;
+    @Autowired MemberRepository memberRepository;
+
+    @BeforeEach
+    public void before() {
+        Team big = new Team("countBig");
+        Team small = new Team("countSmall");
+        em.persist(big);
+        em.persist(small);
+        for (int i = 0; i < 1000; i++) {
+            em.persist(new Member("countBig" + i, i % 50, big));
+        }
+        for (int i = 0; i < 10; i++) {
+            em.persist(new Member("countSmall" + i, 20, small));
+        }
+        em.flush();
+        em.clear();
+        estimator.refresh();
+    }
+
+    @Test
+    public void largeResultIsEstimatedFromHistogram() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("countBig");
+        condition.setAgeGoe(10);
+
+        CountEstimate estimate = estimator.count(condition);
+
+        assertThat(estimate.isExact()).isFalse();
+        assertThat(estimate.getCount()).isEqualTo(memberRepository.searchCount(condition)).isEqualTo(800);
+        assertThat(estimate.getDisplay()).isEqualTo("about 0.8K");
+    }
+
+    @Test
+    public void smallResultIsCountedExactly() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("countSmall");
+
+        CountEstimate estimate = estimator.count(condition);
+
+        assertThat(estimate.isExact()).isTrue();
+        assertThat(estimate.getCount()).isEqualTo(10);
+    }
+
+    @Test
+    public void usernameConditionIsCountedExactly() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("countBig1");
+
+        assertThat(estimator.count(condition)).isEqualTo(CountEstimate.exact(1));
+    }
+
+    @Test
+    public void changesSinceRefreshWidenErrorBound() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("countBig");
+
+        estimator.onChanges(List.of(
+                change("Member", ChangeType.UPDATE, Collections.singletonMap("age", 1)),
+                change("Member", ChangeType.BULK_UPDATE, Collections.singletonMap("affected", 30L))));
+        assertThat(estimator.count(condition).getErrorBound()).isEqualTo(31);
+
+        estimator.onChanges(List.of(change("Team", ChangeType.UPDATE, Collections.singletonMap("name", "renamed"))));
+        assertThat(estimator.count(condition)).isEqualTo(CountEstimate.exact(1000)); //팀 이름 변경 -> refresh 전까지 정확히
+
+        estimator.refresh();
+        assertThat(estimator.count(condition)).isEqualTo(CountEstimate.approximate(1000, 0));
+    }
+
+    @Test
+    public void teamInsertKeepsHistogram() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("countBig");
+
+        estimator.onChanges(List.of(change("Team", ChangeType.INSERT, Collections.singletonMap("name", "countNew"))));
+
+        assertThat(estimator.count(condition)).isEqualTo(CountEstimate.approximate(1000, 0));
+    }
+
+    private ChangeRecord change(String aggregateType, ChangeType changeType, Map<String, Object> state) {
+        return new ChangeRecord(null, aggregateType, null, changeType, state, LocalDateTime.now());
+    }
+}
@@ -0,0 +1,94 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.domain.Member;
+import study.querydsl.domain.Team;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest
+@Transactional
+class MemberFieldSelectionTest {
+
+    private static final int WIDE = 20_000;
+
+    @Autowired EntityManager em;
+    @Autowired MemberRepository memberRepository;
+
+    Team teamA;
+
+    @BeforeEach
+    public void before() {
+        teamA = new Team("fieldsA");
+        Team teamB = new Team("fieldsB");
+        em.persist(teamA);
+        em.persist(teamB);
+        for (int i = 0; i < WIDE; i++) {
+            em.persist(new Member("fields" + i, 1000 + i % 50, i % 2 == 0 ? teamA : teamB));
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void selectsOnlyRequestedFields() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("fields0");
+
+        List<Map<String, Object>> result = memberRepository.search(condition, List.of(MemberField.USERNAME, MemberField.AGE));
+
+        assertThat(result).hasSize(1);
+        assertThat(result.get(0)).containsExactly(entry("username", "fields0"), entry("age", 1000));
+    }
+
+    @Test
+    public void teamIdWithoutJoinAndTeamNameWithJoin() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("fields0");
+
+        assertThat(memberRepository.search(condition, List.of(MemberField.TEAM_ID)))
+                .containsExactly(Map.of("teamId", teamA.getId()));
+        assertThat(memberRepository.search(condition, List.of(MemberField.TEAM_NAME)))
+                .containsExactly(Map.of("teamName", "fieldsA"));
+
+        condition.setUsername(null);
+        condition.setTeamName("fieldsA"); //team 조건이 있으면 필드에 없어도 조인
+        assertThat(memberRepository.search(condition, List.of(MemberField.ID))).hasSize(WIDE / 2);
+    }
+
+    @Test
+    public void unknownFieldIsRejected() {
+        assertThatThrownBy(() -> MemberField.from("password"))
+                .isInstanceOf(InvalidFieldException.class);
+    }
+
+    @Test
+    public void wideResultBenchmark() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(1000);
+
+        for (int round = 0; round < 3; round++) { //첫 라운드는 워밍업
+            long start = System.nanoTime();
+            List<MemberTeamDto> full = memberRepository.search(condition);
+            long fullMillis = (System.nanoTime() - start) / 1_000_000;
+
+            start = System.nanoTime();
+            List<Map<String, Object>> narrow = memberRepository.search(condition, List.of(MemberField.USERNAME));
+            long narrowMillis = (System.nanoTime() - start) / 1_000_000;
+
+            assertThat(narrow).hasSize(full.size()).hasSize(WIDE);
+            System.out.println("round=" + round + " rows=" + full.size()
+                    + " all fields + join=" + fullMillis + "ms, username only=" + narrowMillis + "ms");
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.domain.Member;
+import study.querydsl.domain.Team;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.TeamMoveResult;
+import study.querydsl.sql.SqlCapture;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest
+@Transactional
+class MemberMoveTest {
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        SqlCapture sqlCapture() {
+            return new SqlCapture();
+        }
+    }
+
+    @Autowired EntityManager em;
+    @Autowired MemberJpaRepository memberJpaRepository;
+    @Autowired SqlCapture sqlCapture;
+
+    Team from;
+    Team to;
+
+    @BeforeEach
+    public void before() {
+        from = new Team("moveFrom");
+        to = new Team("moveTo");
+        em.persist(from);
+        em.persist(to);
+        for (int i = 0; i < 30; i++) {
+            em.persist(new Member("moveFrom" + i, i, from));
+        }
+        for (int i = 0; i < 5; i++) {
+            em.persist(new Member("moveTo" + i, i, to));
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void movesMatchingMembersWithOneUpdate() {
+        Team loadedFrom = em.find(Team.class, from.getId());
+        assertThat(loadedFrom.getMembers()).hasSize(30); //이동 전에 컬렉션을 읽어 둔다.
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(10);
+
+        sqlCapture.start();
+        TeamMoveResult result = memberJpaRepository.moveMembers(loadedFrom, to, condition);
+        List<String> statements = sqlCapture.stop();
+
+        assertThat(result.getMoved()).isEqualTo(20);
+        assertThat(result.getFromTeamSize()).isEqualTo(10);
+        assertThat(result.getToTeamSize()).isEqualTo(25);
+        assertThat(statements).filteredOn(sql -> sql.startsWith("update member")).hasSize(1);
+
+        //회원과 두 팀은 준영속이 되었으므로 다시 읽으면 이동 후 상태
+        assertThat(em.find(Team.class, from.getId()).getMembers()).hasSize(10);
+        assertThat(em.find(Team.class, to.getId()).getMembers()).hasSize(25);
+        List<Member> moved = em.createQuery("select m from Member m where m.team.id = :teamId and m.age >= 10", Member.class)
+                .setParameter("teamId", to.getId())
+                .getResultList();
+        assertThat(moved).hasSize(20);
+        assertThat(moved).extracting(Member::getVersion).allMatch(version -> version == 1L); //벌크에서도 버전 증가
+    }
+
+    @Test
+    public void unrelatedEntitiesStayManaged() {
+        Team other = new Team("moveOther");
+        em.persist(other);
+        Member member = em.find(Member.class, em.createQuery("select m.id from Member m where m.username = 'moveFrom0'", Long.class)
+                .getSingleResult());
+
+        memberJpaRepository.moveMembers(em.find(Team.class, from.getId()), to, new MemberSearchCondition());
+
+        assertThat(em.contains(other)).isTrue();
+        assertThat(em.contains(member)).isFalse();
+        assertThat(em.find(Member.class, member.getId()).getTeam().getId()).isEqualTo(to.getId());
+    }
+
+    @Test
+    public void sameTeamMovesNothing() {
+        sqlCapture.start();
+        TeamMoveResult result = memberJpaRepository.moveMembers(from, from, new MemberSearchCondition());
+        List<String> statements = sqlCapture.stop();
+
+        assertThat(result.getMoved()).isZero();
+        assertThat(result.getFromTeamSize()).isEqualTo(30);
+        assertThat(result.getToTeamSize()).isEqualTo(30);
+        assertThat(statements).filteredOn(sql -> sql.startsWith("update member")).isEmpty();
+    }
+
+    @Test
+    public void otherTeamNameInConditionMovesNothing() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("moveTo");
+
+        TeamMoveResult result = memberJpaRepository.moveMembers(from, to, condition);
+
+        assertThat(result.getMoved()).isZero();
+        assertThat(result.getFromTeamSize()).isEqualTo(30);
+        assertThat(result.getToTeamSize()).isEqualTo(5);
+    }
+}
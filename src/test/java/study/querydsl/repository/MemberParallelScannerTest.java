@@ -0,0 +1,108 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.domain.Member;
+import study.querydsl.domain.Team;
+import study.querydsl.dto.MemberTeamDto;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * 다른 커넥션에서 읽어야 하므로 데이터를 커밋해서 넣는다.
+ * 행 수는 -Dscan.rows=10000000 처럼 바꿔서 돌릴 수 있다.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:scan;DB_CLOSE_DELAY=-1") //커밋한 데이터가 공유 DB 에 남지 않도록
+class MemberParallelScannerTest {
+
+    private static final int ROWS = Integer.getInteger("scan.rows", 20_000);
+
+    @Autowired EntityManager em;
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired MemberParallelScanner scanner;
+
+    long totalRows;
+
+    @BeforeEach
+    public void before() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Long teamId = tx.execute(status -> {
+            Team team = new Team("scanTeam" + UUID.randomUUID().toString().substring(0, 8)); //팀 이름은 유일해야 하고 테스트마다 다시 넣는다.
+            em.persist(team);
+            return team.getId();
+        });
+
+        for (int chunk = 0; chunk < ROWS; chunk += 1000) {
+            int from = chunk;
+            tx.executeWithoutResult(status -> {
+                Team team = em.getReference(Team.class, teamId);
+                for (int i = from; i < Math.min(from + 1000, ROWS); i++) {
+                    em.persist(new Member("scan" + i, i % 100, i % 3 == 0 ? null : team));
+                }
+            });
+        }
+
+        totalRows = tx.execute(status -> em.createQuery("select count(m) from Member m", Long.class).getSingleResult());
+    }
+
+    @Test
+    public void scanReadsEveryRowOnce() {
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+
+        long rows = scanner.scan(8, 4, dto -> assertThat(ids.add(dto.getMemberId())).isTrue());
+
+        assertThat(rows).isEqualTo(totalRows);
+        assertThat(ids).hasSize((int) totalRows);
+    }
+
+    @Test
+    public void parallelStream() {
+        try (Stream<MemberTeamDto> stream = scanner.stream(16)) {
+            List<Long> ids = stream.parallel()
+                    .map(MemberTeamDto::getMemberId)
+                    .collect(Collectors.toList());
+
+            assertThat(ids).hasSize((int) totalRows);
+            assertThat(ids).isSorted(); //ORDERED 스트림이므로 병렬이어도 id 순서가 유지된다.
+        }
+    }
+
+    @Test
+    public void closeAfterShortCircuitReleasesConnections() {
+        //기본 max-connections(4)보다 많이 반복해서 커넥션이 새면 다음 스트림이 멈춘다.
+        for (int i = 0; i < 8; i++) {
+            try (Stream<MemberTeamDto> stream = scanner.stream(16)) {
+                assertThat(stream.parallel().filter(dto -> dto.getAge() == 50).findAny()).isPresent();
+            }
+        }
+
+        assertThat(scanner.scan(8, 4, dto -> { })).isEqualTo(totalRows);
+    }
+
+    @Test
+    public void scaling() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int parallelism = 1; parallelism <= cores; parallelism *= 2) {
+            LongAdder ageSum = new LongAdder();
+            long start = System.nanoTime();
+            long rows = scanner.scan(parallelism * 4, parallelism, dto -> ageSum.add(dto.getAge()));
+            long elapsedMs = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+
+            System.out.println("scan parallelism=" + parallelism + " rows=" + rows
+                    + " elapsed=" + elapsedMs + "ms rows/s=" + rows * 1000 / elapsedMs);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import study.querydsl.domain.Member;
+import study.querydsl.domain.Team;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+import javax.persistence.EntityManager;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * JDBC(JPA) 와 R2DBC 가 같은 in-memory H2 를 보도록 두 URL 을 맞춘다.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:reactive;DB_CLOSE_DELAY=-1",
+        "spring.r2dbc.url=r2dbc:h2:mem:///reactive;DB_CLOSE_DELAY=-1",
+        "member.seed.enabled=false",
+        "member.reactive.prefetch=" + MemberReactiveRepositoryTest.PREFETCH
+})
+class MemberReactiveRepositoryTest {
+
+    private static final int MEMBERS = 2000;
+    private static final int CONCURRENCY = 200;
+    private static final int PREFETCH = 32; //member.reactive.prefetch
+
+    @Autowired EntityManager em;
+    @Autowired PlatformTransactionManager txManager;
+    @Autowired MemberRepository memberRepository;
+    @Autowired MemberReactiveRepository memberReactiveRepository;
+
+    @BeforeEach
+    public void seed() {
+        //R2DBC 는 다른 커넥션이므로 커밋해야 보인다. (DB 는 이 테스트 클래스 전용)
+        new TransactionTemplate(txManager).executeWithoutResult(status -> {
+            if (em.createQuery("select count(m) from Member m", Long.class).getSingleResult() > 0) {
+                return;
+            }
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            for (int i = 0; i < MEMBERS; i++) {
+                em.persist(new Member("member" + i, i % 100, i % 3 == 0 ? null : i % 2 == 0 ? teamA : teamB));
+            }
+        });
+    }
+
+    @Test
+    public void sameResultAsBlockingSearch() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamB");
+        condition.setAgeGoe(30);
+        condition.setAgeLoe(60);
+
+        List<MemberTeamDto> reactive = memberReactiveRepository.search(condition).collectList().block();
+
+        assertThat(reactive).isNotEmpty();
+        assertThat(reactive)
+                .usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyInAnyOrderElementsOf(memberRepository.search(condition));
+    }
+
+    @Test
+    public void emptyConditionIncludesMembersWithoutTeam() {
+        List<MemberTeamDto> all = memberReactiveRepository.search(new MemberSearchCondition()).collectList().block();
+
+        assertThat(all).hasSize(MEMBERS);
+        assertThat(all).filteredOn(dto -> dto.getTeamId() == null).isNotEmpty(); //left join
+    }
+
+    @Test
+    public void rowsAreFetchedOnDemand() throws InterruptedException {
+        AtomicLong upstreamRequested = new AtomicLong();
+        AtomicLong rowsMapped = new AtomicLong(); //드라이버에서 꺼내 DTO 로 만든 행 수 (limitRate 앞단)
+        List<MemberTeamDto> received = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(1);
+
+        //search() 와 같은 파이프라인에 limitRate 앞단 카운터만 끼운다.
+        memberReactiveRepository.rows(new MemberSearchCondition())
+                .doOnNext(dto -> rowsMapped.incrementAndGet())
+                .limitRate(PREFETCH)
+                .doOnRequest(upstreamRequested::addAndGet)
+                .subscribe(new BaseSubscriber<MemberTeamDto>() {
+                    @Override
+                    protected void hookOnSubscribe(Subscription subscription) {
+                        request(10);
+                    }
+
+                    @Override
+                    protected void hookOnNext(MemberTeamDto value) {
+                        received.add(value);
+                        if (received.size() == 10) {
+                            cancel(); //10건만 받고 그만
+                            done.countDown();
+                        }
+                    }
+                });
+
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(received).hasSize(10);
+        assertThat(upstreamRequested.get()).isEqualTo(10); //구독자가 요청한 만큼만
+
+        //limitRate 앞단(드라이버)에서도 prefetch 이상은 꺼내지 않는다. 취소 뒤 늦게 도착하는 행이 있는지 잠깐 기다린다.
+        Thread.sleep(200);
+        assertThat(rowsMapped.get()).isBetween(10L, (long) PREFETCH);
+    }
+
+    @Test
+    public void indexedMarkers() {
+        assertThat(MemberReactiveRepository.indexedMarkers("select * from member where age >= ? and age <= ?"))
+                .isEqualTo("select * from member where age >= $1 and age <= $2");
+    }
+
+    /**
+     * 같은 요청 CONCURRENCY 개를 동시에 실행했을 때 쓰레드/힙 사용량 비교 (결과만 출력)
+     * - blocking: 요청마다 쓰레드 하나 (서블릿 쓰레드 풀과 같은 모델)
+     * - reactive: 구독만 하고 쓰레드를 만들지 않는다. r2dbc-h2 는 내부적으로 내장 H2 를 호출 쓰레드에서 실행하므로
+     *   네트워크 드라이버(r2dbc-postgresql 등)보다 차이가 작게 나온다.
+     */
+    @Test
+    public void benchmarkAgainstBlockingPath() throws Exception {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(10);
+        condition.setAgeLoe(40);
+
+        //워밍업
+        memberRepository.search(condition);
+        memberReactiveRepository.search(condition).collectList().block();
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+        System.gc();
+        threads.resetPeakThreadCount();
+        long baseThreads = threads.getThreadCount();
+        long heapBefore = memory.getHeapMemoryUsage().getUsed();
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(CONCURRENCY);
+        long blockingRows = 0;
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < CONCURRENCY; i++) {
+                futures.add(pool.submit(() -> memberRepository.search(condition).size()));
+            }
+            for (Future<Integer> future : futures) {
+                blockingRows += future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        long blockingMillis = (System.nanoTime() - start) / 1_000_000;
+        long blockingPeakThreads = threads.getPeakThreadCount() - baseThreads;
+        long blockingHeapMb = (memory.getHeapMemoryUsage().getUsed() - heapBefore) / (1024 * 1024);
+
+        System.gc();
+        threads.resetPeakThreadCount();
+        baseThreads = threads.getThreadCount();
+        heapBefore = memory.getHeapMemoryUsage().getUsed();
+        start = System.nanoTime();
+        Long reactiveRows = Flux.range(0, CONCURRENCY)
+                .flatMap(i -> memberReactiveRepository.search(condition).count(), CONCURRENCY)
+                .reduce(0L, Long::sum)
+                .block();
+        long reactiveMillis = (System.nanoTime() - start) / 1_000_000;
+        long reactivePeakThreads = threads.getPeakThreadCount() - baseThreads;
+        long reactiveHeapMb = (memory.getHeapMemoryUsage().getUsed() - heapBefore) / (1024 * 1024);
+
+        System.out.println("concurrency=" + CONCURRENCY);
+        System.out.println("blocking rows=" + blockingRows + " " + blockingMillis + "ms extraThreads=" + blockingPeakThreads + " heap+=" + blockingHeapMb + "MB");
+        System.out.println("reactive rows=" + reactiveRows + " " + reactiveMillis + "ms extraThreads=" + reactivePeakThreads + " heap+=" + reactiveHeapMb + "MB");
+
+        assertThat(reactiveRows).isEqualTo(blockingRows);
+    }
+}
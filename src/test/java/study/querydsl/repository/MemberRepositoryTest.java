@@ -4,9 +4,13 @@ import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.transaction.annotation.Transactional;
 import study.querydsl.domain.Member;
 import study.querydsl.domain.Team;
+import study.querydsl.dto.MemberFacet;
+import study.querydsl.dto.MemberFacetResult;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 
@@ -64,4 +68,74 @@ class MemberRepositoryTest {
 
         assertThat(result).extracting("username").containsExactly("member4");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void searchSortTest() {
+
+        Team team = new Team("sortTeam");
+        em.persist(team);
+
+        em.persist(new Member("member1", 10, team));
+        em.persist(new Member("member2", 20, team));
+        em.persist(new Member("member3", 20, team));
+        em.persist(new Member(null, 40, team));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("sortTeam");
+
+        //나이 내림차순, 이름 내림차순(null은 마지막) 상위 3건
+        PageRequest pageRequest = PageRequest.of(0, 3,
+                Sort.by(Sort.Order.desc("age"), Sort.Order.desc("username").nullsLast()));
+        List<MemberTeamDto> result = memberRepository.search(condition, pageRequest);
+
+        assertThat(result).extracting("username").containsExactly(null, "member3", "member2");
+    }
+
+    @Test
+    public void searchSortNotAllowedTest() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        assertThatThrownBy(() -> memberRepository.search(condition, PageRequest.of(0, 10, Sort.by("team.id"))))
+                .isInstanceOf(InvalidSortException.class);
+    }
+
+    @Test
+    public void searchWithFacetsTest() {
+
+        Team team = new Team("facetTeam");
+        em.persist(team);
+
+        em.persist(new Member("member1", 10, team));
+        em.persist(new Member("member2", 15, team));
+        em.persist(new Member("member3", 21, team));
+        em.persist(new Member("member4", 40, team));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("facetTeam");
+        condition.setAgeLoe(30);
+
+        MemberFacetResult result = memberRepository.searchWithFacets(condition, PageRequest.of(0, 2),
+                MemberFacet.TEAM, MemberFacet.AGE_DECADE);
+
+        assertThat(result.getContent()).hasSize(2);
+        assertThat(result.getFacets().get(MemberFacet.TEAM)).containsExactly(entry("facetTeam", 3L));
+        assertThat(result.getFacets().get(MemberFacet.AGE_DECADE)).containsExactly(entry("10~19", 2L), entry("20~29", 1L));
+    }
+
+    @Test
+    public void ageDecadeFacetIsOrderedNumerically() {
+        Team team = new Team("decadeTeam");
+        em.persist(team);
+        em.persist(new Member("decade1", 105, team));
+        em.persist(new Member("decade2", 25, team));
+        em.persist(new Member("decade3", 7, team));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("decadeTeam");
+
+        MemberFacetResult result = memberRepository.searchWithFacets(condition, PageRequest.of(0, 10), MemberFacet.AGE_DECADE);
+
+        assertThat(result.getFacets().get(MemberFacet.AGE_DECADE))
+                .containsExactly(entry("0~9", 1L), entry("20~29", 1L), entry("100~109", 1L));
+    }
+}
@@ -0,0 +1,134 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.domain.Member;
+import study.querydsl.domain.Team;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest
+@Transactional
+class MemberTopNPerTeamTest {
+
+    private static final int TEAM_COUNT = 20;
+    private static final int MEMBERS_PER_TEAM = 200;
+
+    @Autowired EntityManager em;
+    @Autowired MemberRepository memberRepository;
+
+    MemberSearchCondition condition;
+    Sort oldestFirst = Sort.by(Sort.Order.desc("age"), Sort.Order.asc("username"));
+
+    @BeforeEach
+    public void before() {
+        for (int t = 0; t < TEAM_COUNT; t++) {
+            Team team = new Team("topN" + t);
+            em.persist(team);
+            for (int i = 0; i < MEMBERS_PER_TEAM; i++) {
+                em.persist(new Member("m" + t + "_" + i, (i * 7) % 60, team)); //같은 나이가 여러 명 -> username으로 순서 결정
+            }
+        }
+        em.persist(new Member("noTeam", 99)); //팀이 없는 회원은 결과에 없어야 한다.
+        em.flush();
+        em.clear();
+
+        condition = new MemberSearchCondition();
+        condition.setAgeGoe(10);
+    }
+
+    @Test
+    public void oldestFivePerTeam() {
+        List<MemberTeamDto> window = memberRepository.topNPerTeam(condition, 5, oldestFirst, TopNStrategy.WINDOW);
+        List<MemberTeamDto> correlated = memberRepository.topNPerTeam(condition, 5, oldestFirst, TopNStrategy.CORRELATED);
+        List<MemberTeamDto> naive = naive(condition, 5, oldestFirst);
+
+        assertThat(window).hasSize(TEAM_COUNT * 5);
+        assertThat(window).extracting("username").doesNotContain("noTeam");
+        assertThat(window).isEqualTo(naive);
+        assertThat(correlated).isEqualTo(naive);
+    }
+
+    @Test
+    public void nullUsernamesAreRankedTheSameWay() {
+        Team team = new Team("topNNull");
+        em.persist(team);
+        for (int i = 0; i < 3; i++) {
+            em.persist(new Member(null, 20, team));
+            em.persist(new Member("n" + i, 20, team));
+        }
+        em.flush();
+        em.clear();
+
+        MemberSearchCondition nullTeam = new MemberSearchCondition();
+        nullTeam.setTeamName("topNNull");
+        for (Sort sort : List.of(
+                Sort.by(Sort.Order.asc("username")),
+                Sort.by(Sort.Order.desc("username")),
+                Sort.by(Sort.Order.asc("username").nullsFirst()),
+                Sort.by(Sort.Order.desc("username").nullsLast()))) {
+            List<MemberTeamDto> window = memberRepository.topNPerTeam(nullTeam, 4, sort, TopNStrategy.WINDOW);
+            List<MemberTeamDto> correlated = memberRepository.topNPerTeam(nullTeam, 4, sort, TopNStrategy.CORRELATED);
+
+            assertThat(window).hasSize(4);
+            assertThat(correlated).usingRecursiveFieldByFieldElementComparator().containsExactlyElementsOf(window);
+        }
+    }
+
+    @Test
+    public void nMustBePositive() {
+        assertThatThrownBy(() -> memberRepository.topNPerTeam(condition, 0, oldestFirst))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void benchmark() {
+        int rounds = 5;
+        for (int i = 0; i < 2; i++) { //warm-up
+            naive(condition, 5, oldestFirst);
+            memberRepository.topNPerTeam(condition, 5, oldestFirst, TopNStrategy.WINDOW);
+            memberRepository.topNPerTeam(condition, 5, oldestFirst, TopNStrategy.CORRELATED);
+        }
+
+        long naive = measure(rounds, () -> naive(condition, 5, oldestFirst));
+        long window = measure(rounds, () -> memberRepository.topNPerTeam(condition, 5, oldestFirst, TopNStrategy.WINDOW));
+        long correlated = measure(rounds, () -> memberRepository.topNPerTeam(condition, 5, oldestFirst, TopNStrategy.CORRELATED));
+
+        System.out.println("topNPerTeam rows=" + TEAM_COUNT * MEMBERS_PER_TEAM
+                + " naive=" + naive + "ms window=" + window + "ms correlated=" + correlated + "ms (avg of " + rounds + ")");
+    }
+
+    //전부 가져와서 자바에서 팀별로 자르는 기존 방식
+    private List<MemberTeamDto> naive(MemberSearchCondition condition, int n, Sort sort) {
+        Map<Long, List<MemberTeamDto>> byTeam = memberRepository.search(condition, PageRequest.of(0, Integer.MAX_VALUE, sort))
+                .stream()
+                .filter(dto -> dto.getTeamId() != null)
+                .collect(Collectors.groupingBy(MemberTeamDto::getTeamId, TreeMap::new, Collectors.toList()));
+
+        return byTeam.values().stream()
+                .flatMap(members -> members.stream().limit(n))
+                .collect(Collectors.toList());
+    }
+
+    private long measure(int rounds, Runnable query) {
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            em.clear();
+            query.run();
+        }
+        return (System.nanoTime() - start) / rounds / 1_000_000;
+    }
+}
@@ -0,0 +1,129 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.types.Predicate;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.domain.Member;
+import study.querydsl.domain.QMember;
+import study.querydsl.domain.Team;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static com.querydsl.jpa.JPAExpressions.select;
+import static org.assertj.core.api.Assertions.*;
+import static study.querydsl.domain.QMember.member;
+
+@SpringBootTest
+@Transactional
+class SubQueryRewriterTest {
+
+    @Autowired EntityManager em;
+    @Autowired SubQueryRewriter rewriter;
+
+    JPAQueryFactory queryFactory;
+    QMember memberSub = new QMember("memberSub");
+
+    @BeforeEach
+    public void before() {
+        queryFactory = new JPAQueryFactory(em);
+
+        Team teamA = new Team("rewriteA");
+        Team teamB = new Team("rewriteB");
+        em.persist(teamA);
+        em.persist(teamB);
+        for (int i = 0; i < 2000; i++) {
+            em.persist(new Member("rewrite" + i, i % 100, i % 2 == 0 ? teamA : teamB));
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void maxSubQuery() { //QuerydslBasicTest.subQuery
+        Predicate original = member.age.eq(select(memberSub.age.max()).from(memberSub));
+
+        SubQueryRewriter.RewriteResult result = assertSameResult(original);
+        assertThat(result.getApplied()).singleElement().asString().startsWith("SCALAR_AGGREGATE");
+    }
+
+    @Test
+    public void avgSubQuery() { //QuerydslBasicTest.subQueryGoe
+        Predicate original = member.age.goe(select(memberSub.age.avg()).from(memberSub));
+
+        SubQueryRewriter.RewriteResult result = assertSameResult(original);
+        assertThat(result.getApplied()).singleElement().asString().startsWith("SCALAR_AGGREGATE");
+    }
+
+    @Test
+    public void inSubQuery() { //QuerydslBasicTest.subQueryIn
+        Predicate original = member.age.in(select(memberSub.age).from(memberSub).where(memberSub.age.gt(90)));
+
+        SubQueryRewriter.RewriteResult result = assertSameResult(original);
+        assertThat(result.getApplied()).singleElement().asString().startsWith("IN_MATERIALIZED(9)");
+    }
+
+    @Test
+    public void emptyInSubQuery() {
+        Predicate original = member.age.in(select(memberSub.age).from(memberSub).where(memberSub.age.gt(1000)))
+                .or(member.age.eq(1));
+
+        SubQueryRewriter.RewriteResult result = assertSameResult(original);
+        assertThat(result.getApplied()).singleElement().asString().startsWith("IN_MATERIALIZED(0)");
+    }
+
+    @Test
+    public void correlatedSubQueryIsKept() { //팀 평균 나이 이상 -> 행마다 값이 다르므로 변환하지 않는다.
+        Predicate original = member.age.goe(
+                select(memberSub.age.avg()).from(memberSub).where(memberSub.team.eq(member.team)));
+
+        SubQueryRewriter.RewriteResult result = assertSameResult(original);
+        assertThat(result.getPredicate()).isSameAs(original);
+        assertThat(result.getApplied()).singleElement().asString().startsWith("KEPT_CORRELATED");
+    }
+
+    @Test
+    public void benchmark() {
+        Predicate original = member.age.goe(select(memberSub.age.avg()).from(memberSub))
+                .and(member.age.in(select(memberSub.age).from(memberSub).where(memberSub.age.gt(90))));
+
+        for (int i = 0; i < 3; i++) { //warm-up
+            fetch(original);
+            fetch(rewriter.rewrite(original).getPredicate());
+        }
+
+        int rounds = 20;
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            fetch(original);
+        }
+        long originalMs = (System.nanoTime() - start) / rounds / 1_000_000;
+
+        start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            fetch(rewriter.rewrite(original).getPredicate()); //2단계 쿼리 비용 포함
+        }
+        long rewrittenMs = (System.nanoTime() - start) / rounds / 1_000_000;
+
+        System.out.println("subquery original=" + originalMs + "ms rewritten=" + rewrittenMs + "ms (avg of " + rounds + ")");
+    }
+
+    private SubQueryRewriter.RewriteResult assertSameResult(Predicate original) {
+        SubQueryRewriter.RewriteResult result = rewriter.rewrite(original);
+        assertThat(fetch(result.getPredicate())).isEqualTo(fetch(original));
+        return result;
+    }
+
+    private List<Long> fetch(Predicate predicate) {
+        return queryFactory
+                .select(member.id)
+                .from(member)
+                .where(predicate)
+                .orderBy(member.id.asc())
+                .fetch();
+    }
+}
@@ -0,0 +1,114 @@
+package study.querydsl.search;
+
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.Predicate;
+import lombok.Data;
+import org.junit.jupiter.api.Test;
+import study.querydsl.dto.MemberSearchCondition;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import static org.assertj.core.api.Assertions.*;
+import static study.querydsl.domain.QMember.member;
+import static study.querydsl.domain.QTeam.team;
+
+class ConditionPredicatesTest {
+
+    ConditionPredicates<MemberSearchCondition> predicates = ConditionPredicates.of(MemberSearchCondition.class, member, team);
+
+    @Test
+    public void sameAsHandWrittenHelpers() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("member1");
+        condition.setTeamName("");  //빈 문자열은 조건 없음
+        condition.setAgeGoe(10);
+
+        Predicate[] result = predicates.predicates(condition);
+
+        assertThat(result).hasSize(4);
+        assertThat(Arrays.stream(result).filter(Objects::nonNull).map(Object::toString))
+                .containsExactly(member.username.eq("member1").toString(), member.age.goe(10).toString());
+        assertThat(predicates.uses(condition, team)).isFalse();
+
+        condition.setTeamName("teamA");
+        assertThat(predicates.uses(condition, team)).isTrue();
+        assertThat(ExpressionUtils.allOf(predicates.predicates(condition)).toString())
+                .isEqualTo(member.username.eq("member1").and(team.name.eq("teamA")).and(member.age.goe(10)).toString());
+    }
+
+    @Test
+    public void compiledOnceAndCached() {
+        assertThat(ConditionPredicates.of(MemberSearchCondition.class, member, team)).isSameAs(predicates);
+    }
+
+    @Data
+    public static class TeamCondition { //Member 가 아닌 엔티티도 같은 방식으로
+        @Eq("team.name")
+        private String name;
+        @Goe("team.id")
+        private Long idGoe;
+    }
+
+    @Test
+    public void worksForOtherEntities() {
+        TeamCondition condition = new TeamCondition();
+        condition.setIdGoe(5L);
+
+        Predicate[] result = ConditionPredicates.of(TeamCondition.class, team).predicates(condition);
+
+        assertThat(result[0]).isNull();
+        assertThat(result[1].toString()).isEqualTo(team.id.goe(5L).toString());
+    }
+
+    @Data
+    public static class BrokenCondition {
+        @Eq("member.password")
+        private String password;
+    }
+
+    @Test
+    public void unknownPathFailsAtCompileTime() {
+        assertThatThrownBy(() -> ConditionPredicates.of(BrokenCondition.class, member))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("member.password");
+    }
+
+    @Test
+    public void perRequestCost() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("member1");
+        condition.setTeamName("teamA");
+        condition.setAgeGoe(10);
+        condition.setAgeLoe(40);
+
+        int iterations = 1_000_000;
+        for (int round = 0; round < 3; round++) { //첫 라운드는 워밍업
+            long start = System.nanoTime();
+            long sink = 0;
+            for (int i = 0; i < iterations; i++) {
+                sink += predicates.predicates(condition).length;
+            }
+            long engineNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                sink += handWritten(condition).length;
+            }
+            long handNanos = System.nanoTime() - start;
+
+            assertThat(sink).isEqualTo(8L * iterations);
+            System.out.println("round=" + round + " engine=" + engineNanos / iterations + "ns/op, hand-written="
+                    + handNanos / iterations + "ns/op");
+        }
+    }
+
+    private Predicate[] handWritten(MemberSearchCondition condition) {
+        return new Predicate[]{
+                condition.getUsername() == null ? null : member.username.eq(condition.getUsername()),
+                condition.getTeamName() == null ? null : team.name.eq(condition.getTeamName()),
+                condition.getAgeGoe() == null ? null : member.age.goe(condition.getAgeGoe()),
+                condition.getAgeLoe() == null ? null : member.age.loe(condition.getAgeLoe())
+        };
+    }
+}
@@ -0,0 +1,128 @@
+package study.querydsl.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.domain.Member;
+import study.querydsl.domain.Team;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * 여러 쓰레드에서 같은 회원들의 나이/팀을 동시에 바꾸면서 처리량과 충돌률을 본다.
+ * 각 쓰레드가 커밋해야 하므로 @Transactional을 붙이지 않는다.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:concurrency;DB_CLOSE_DELAY=-1") //커밋한 데이터가 공유 DB 에 남지 않도록
+class MemberConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int OPERATIONS_PER_THREAD = 200;
+    private static final int MEMBERS = 20; //적은 회원에 몰아서 충돌을 유도
+
+    @Autowired EntityManager em;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    List<Long> memberIds;
+    List<Long> teamIds;
+
+    @BeforeEach
+    public void before() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        memberIds = new ArrayList<>();
+        teamIds = new ArrayList<>();
+
+        String run = UUID.randomUUID().toString().substring(0, 8); //팀 이름은 유일해야 하고 테스트마다 다시 넣는다.
+        tx.executeWithoutResult(status -> {
+            Team teamA = new Team("concurrencyA" + run);
+            Team teamB = new Team("concurrencyB" + run);
+            em.persist(teamA);
+            em.persist(teamB);
+            teamIds.add(teamA.getId());
+            teamIds.add(teamB.getId());
+
+            for (int i = 0; i < MEMBERS; i++) {
+                Member member = new Member("concurrency" + i, 0, teamA);
+                em.persist(member);
+                memberIds.add(member.getId());
+            }
+        });
+    }
+
+    @Test
+    public void optimisticLockOnly() throws Exception {
+        run("optimistic only", new MemberUpdateService(em, transactionManager, 0, 50, 1));
+    }
+
+    @Test
+    public void stripedLockAndOptimisticLock() throws Exception {
+        run("striped + optimistic", new MemberUpdateService(em, transactionManager, 64, 50, 1));
+    }
+
+    @Test
+    public void calledInsideOuterTransaction() {
+        MemberUpdateService service = new MemberUpdateService(em, transactionManager, 64, 50, 1);
+        Long memberId = memberIds.get(0);
+
+        TransactionTemplate outer = new TransactionTemplate(transactionManager);
+        outer.executeWithoutResult(status -> {
+            em.find(Member.class, memberId); //바깥 영속성 컨텍스트에 먼저 올려 둔다.
+            service.changeAge(memberId, 42);
+            status.setRollbackOnly();
+        });
+
+        //재시도 트랜잭션은 바깥과 별개라 바깥이 롤백돼도 남는다.
+        Integer age = outer.execute(status -> em.find(Member.class, memberId).getAge());
+        assertThat(age).isEqualTo(42);
+        assertThat(service.getConflicts()).isZero();
+    }
+
+    private void run(String name, MemberUpdateService service) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+        long start = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    Long memberId = memberIds.get(random.nextInt(memberIds.size()));
+                    if (i % 2 == 0) {
+                        service.addAge(memberId, 1);
+                    } else {
+                        service.changeTeam(memberId, teamIds.get(random.nextInt(teamIds.size())));
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5, TimeUnit.MINUTES)).isTrue();
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        int operations = THREADS * OPERATIONS_PER_THREAD;
+        System.out.println(name + ": operations=" + operations
+                + " elapsed=" + elapsedMs + "ms"
+                + " throughput=" + (operations * 1000L / Math.max(elapsedMs, 1)) + "/s"
+                + " conflicts=" + service.getConflicts()
+                + " conflictRate=" + String.format("%.2f%%", service.getConflicts() * 100.0 / service.getAttempts())
+                + " exhausted=" + service.getExhausted());
+
+        //addAge가 하나도 유실되지 않아야 한다.
+        Long totalAge = new TransactionTemplate(transactionManager).execute(status -> em
+                .createQuery("select sum(m.age) from Member m where m.id in :ids", Long.class)
+                .setParameter("ids", memberIds)
+                .getSingleResult());
+        assertThat(service.getExhausted()).isZero();
+        assertThat(totalAge).isEqualTo(operations / 2L);
+    }
+}
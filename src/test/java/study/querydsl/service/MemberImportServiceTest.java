@@ -0,0 +1,124 @@
+package study.querydsl.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberImportProgress;
+
+import javax.persistence.EntityManager;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:import;DB_CLOSE_DELAY=-1", //커밋한 데이터가 공유 DB 에 남지 않도록
+        "member.import.chunk-size=100",
+        "member.import.retention-ms=0" //끝나면 바로 만료
+})
+class MemberImportServiceTest { //청크마다 커밋되므로 @Transactional을 붙이지 않는다.
+
+    @Autowired MemberImportService memberImportService;
+    @Autowired EntityManager em;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    @Test
+    public void importCsv() {
+        String prefix = "csv" + UUID.randomUUID().toString().substring(0, 8);
+        StringBuilder csv = new StringBuilder("username,age,teamName\n");
+        for (int i = 0; i < 1000; i++) {
+            if (i % 100 == 0) {
+                csv.append(prefix).append(i).append(",abc,").append(prefix).append("Team\n"); //age 오류
+            } else {
+                csv.append(prefix).append(i).append(',').append(i % 50).append(',').append(prefix).append(i % 2 == 0 ? "TeamA" : "TeamB").append('\n');
+            }
+        }
+
+        MemberImportProgress progress = memberImportService.importMembers(prefix, MemberImportService.Format.CSV, stream(csv.toString()));
+
+        assertThat(progress.getState()).isEqualTo(MemberImportProgress.State.COMPLETED);
+        assertThat(progress.getCommitted().get()).isEqualTo(990);
+        assertThat(progress.getRejected().get()).isEqualTo(10);
+        assertThat(progress.getErrors()).first().asString().startsWith("line 1:");
+        assertThat(countMembers(prefix)).isEqualTo(990);
+        assertThat(countTeams(prefix)).isEqualTo(2); //TeamA, TeamB 한 번씩만 생성
+
+        //같은 importId로 다시 보내면 이미 처리된 줄은 건너뛴다.
+        MemberImportProgress restarted = memberImportService.importMembers(prefix, MemberImportService.Format.CSV, stream(csv.toString()));
+        assertThat(restarted.getSkippedLines()).isEqualTo(1000);
+        assertThat(restarted.getCommitted().get()).isZero();
+        assertThat(countMembers(prefix)).isEqualTo(990);
+    }
+
+    @Test
+    public void importNdjson() {
+        String prefix = "nd" + UUID.randomUUID().toString().substring(0, 8);
+        String ndjson = "{\"username\":\"" + prefix + "1\",\"age\":10,\"teamName\":\"" + prefix + "Team\"}\n"
+                + "{\"username\":\"" + prefix + "2\",\"age\":20}\n"
+                + "{broken\n"
+                + "{\"username\":\"\",\"age\":20}\n";
+
+        MemberImportProgress progress = memberImportService.importMembers(prefix, MemberImportService.Format.NDJSON, stream(ndjson));
+
+        assertThat(progress.getCommitted().get()).isEqualTo(2);
+        assertThat(progress.getRejected().get()).isEqualTo(2);
+        assertThat(countMembers(prefix)).isEqualTo(2);
+    }
+
+    @Test
+    public void concurrentImportsCreateTeamOnce() throws Exception {
+        String prefix = "par" + UUID.randomUUID().toString().substring(0, 8);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<MemberImportProgress>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                String csv = prefix + "m" + t + ",10," + prefix + "Team\n"; //같은 새 팀을 동시에 만든다.
+                String importId = prefix + t;
+                futures.add(executor.submit(() -> memberImportService.importMembers(importId, MemberImportService.Format.CSV, stream(csv))));
+            }
+            for (Future<MemberImportProgress> future : futures) {
+                assertThat(future.get(30, TimeUnit.SECONDS).getCommitted().get()).isEqualTo(1);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(countMembers(prefix)).isEqualTo(4);
+        assertThat(countTeams(prefix)).isEqualTo(1);
+    }
+
+    @Test
+    public void finishedProgressExpires() {
+        String prefix = "exp" + UUID.randomUUID().toString().substring(0, 8);
+        memberImportService.importMembers(prefix, MemberImportService.Format.CSV, stream(prefix + ",10,\n"));
+
+        assertThat(memberImportService.progress(prefix)).isEmpty();
+    }
+
+    private ByteArrayInputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private long countMembers(String prefix) {
+        return new TransactionTemplate(transactionManager).execute(status -> em
+                .createQuery("select count(m) from Member m where m.username like :prefix", Long.class)
+                .setParameter("prefix", prefix + "%")
+                .getSingleResult());
+    }
+
+    private long countTeams(String prefix) {
+        return new TransactionTemplate(transactionManager).execute(status -> em
+                .createQuery("select count(t) from Team t where t.name like :prefix", Long.class)
+                .setParameter("prefix", prefix + "%")
+                .getSingleResult());
+    }
+}
@@ -0,0 +1,151 @@
+package study.querydsl.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest
+class MemberSearchServiceTest {
+
+    @Autowired MemberSearchService memberSearchService;
+    @Autowired MeterRegistry meterRegistry;
+
+    @Test
+    public void concurrentCallsShareOneExecution() throws Exception {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> singleFlight.execute("teamA", () -> {
+                    loads.incrementAndGet();
+                    await(release);
+                    return 42;
+                }, 5_000)));
+            }
+            //leader 가 loader 안에서 멈춰 있는 동안 나머지가 모두 합류할 때까지 기다린다.
+            while (singleFlight.getCalls() < 8) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            for (Future<Integer> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo(42);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(singleFlight.getExecutions()).isEqualTo(1);
+        assertThat(singleFlight.inFlightCount()).isZero();
+    }
+
+    @Test
+    public void waiterTimesOutWithoutCancellingLeader() throws Exception {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Integer> leader = executor.submit(() -> singleFlight.execute("slow", () -> {
+                await(release);
+                return 1;
+            }, 5_000));
+            while (singleFlight.inFlightCount() == 0) {
+                Thread.sleep(1);
+            }
+
+            assertThatThrownBy(() -> singleFlight.execute("slow", () -> 2, 50))
+                    .isInstanceOf(QueryTimeoutException.class);
+
+            release.countDown();
+            assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(singleFlight.getTimeouts()).isEqualTo(1);
+    }
+
+    @Test
+    public void waiterRetriesWhenLeaderRunsOutOfItsOwnBudget() throws Exception {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            //leader 는 자기 예산이 끝나서 실패한다.
+            Future<Integer> leader = executor.submit(() -> singleFlight.execute("team", () -> {
+                await(release);
+                throw new QueryTimeoutException("leader deadline");
+            }, 5_000));
+            while (singleFlight.inFlightCount() == 0) {
+                Thread.sleep(1);
+            }
+
+            Thread waiterRelease = new Thread(() -> {
+                while (singleFlight.getCalls() < 2) {
+                    Thread.onSpinWait();
+                }
+                release.countDown();
+            });
+            waiterRelease.start();
+
+            //waiter 는 leader 의 타임아웃을 넘겨받지 않고 직접 실행한다.
+            assertThat(singleFlight.execute("team", () -> 7, 5_000)).isEqualTo(7);
+            assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(QueryTimeoutException.class);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(singleFlight.getLeaderTimeouts()).isEqualTo(1);
+        assertThat(singleFlight.getExecutions()).isEqualTo(2);
+    }
+
+    @Test
+    public void searchOutsideTransactionGoesThroughSingleFlight() {
+        double before = executions();
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("");
+
+        memberSearchService.search(condition);
+
+        assertThat(executions()).isEqualTo(before + 1);
+        assertThat(meterRegistry.get("member.search.collapse.ratio").gauge().value()).isBetween(0.0, 1.0);
+    }
+
+    @Test
+    @Transactional
+    public void writableTransactionBypassesSingleFlight() {
+        double before = executions();
+
+        memberSearchService.search(new MemberSearchCondition());
+
+        assertThat(executions()).isEqualTo(before);
+    }
+
+    private double executions() {
+        return meterRegistry.get("member.search.executions").functionCounter().count();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package study.querydsl.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "member.warmup.enabled=true",
+        "member.warmup.iterations=50",
+        "member.warmup.stable-rounds=2",
+        "member.warmup.max-rounds=10",
+        "member.warmup.p99-threshold-ms=1000"
+})
+class WarmUpServiceTest {
+
+    @Autowired WarmUpService warmUpService;
+
+    @Test
+    public void becomesReadyAfterLatencySettles() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 60_000;
+        while (!warmUpService.isReady() && System.currentTimeMillis() < deadline) { //ApplicationReadyEvent 에서 백그라운드로 시작
+            Thread.sleep(50);
+        }
+
+        assertThat(warmUpService.isReady()).isTrue();
+        assertThat(warmUpService.health().getStatus()).isEqualTo(Status.UP);
+        assertThat(warmUpService.health().getDetails().get("rounds")).isInstanceOf(Integer.class);
+        assertThat((Integer) warmUpService.health().getDetails().get("rounds")).isBetween(2, 10);
+    }
+}
@@ -0,0 +1,97 @@
+package study.querydsl.shard;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "member.shard.enabled=true",
+        "member.shard.urls[0]=jdbc:h2:mem:shard0;DB_CLOSE_DELAY=-1",
+        "member.shard.urls[1]=jdbc:h2:mem:shard1;DB_CLOSE_DELAY=-1",
+        "member.shard.urls[2]=jdbc:h2:mem:shard2;DB_CLOSE_DELAY=-1"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ShardedMemberRepositoryTest {
+
+    @Autowired ShardedMemberRepository shardedMemberRepository;
+
+    //username -> [age, teamName]
+    Map<String, Object[]> seeded = new HashMap<>();
+    Map<String, Long> ids = new HashMap<>();
+
+    @BeforeAll
+    public void seed() {
+        for (int t = 0; t < 10; t++) {
+            for (int i = 0; i < 20; i++) {
+                save("shard" + t + "_" + i, (i * 13 + t) % 60, "team" + t);
+            }
+        }
+        for (int i = 0; i < 5; i++) {
+            save("noTeam" + i, 30 + i, null);
+        }
+    }
+
+    private void save(String username, int age, String teamName) {
+        ids.put(username, shardedMemberRepository.saveMember(username, age, teamName));
+        seeded.put(username, new Object[]{age, teamName});
+    }
+
+    @Test
+    public void idsAreGloballyUniqueAndRoutable() {
+        ShardRouter router = shardedMemberRepository.getRouter();
+
+        assertThat(new HashSet<>(ids.values())).hasSize(ids.size());
+        assertThat(ids.values().stream().map(router::forId).collect(Collectors.toSet()))
+                .hasSizeGreaterThan(1); //여러 샤드에 실제로 나뉘어 저장
+
+        ids.forEach((username, id) -> {
+            String teamName = (String) seeded.get(username)[1];
+            assertThat(router.forId(id)).isEqualTo(router.forMember(username, teamName));
+            assertThat(shardedMemberRepository.findById(id)).get()
+                    .extracting(MemberTeamDto::getUsername).isEqualTo(username);
+        });
+    }
+
+    @Test
+    public void teamNameSearchGoesToOneShard() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("team3");
+
+        assertThat(shardedMemberRepository.shardsFor(condition)).hasSize(1);
+        List<MemberTeamDto> result = shardedMemberRepository.search(condition, Pageable.unpaged());
+        assertThat(result).hasSize(20).extracting("teamName").containsOnly("team3");
+    }
+
+    @Test
+    public void fanOutMergeSortsAndPages() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(10);
+        Sort sort = Sort.by(Sort.Order.desc("age"), Sort.Order.asc("username"));
+
+        List<String> expected = seeded.entrySet().stream()
+                .filter(e -> (int) e.getValue()[0] >= 10)
+                .sorted(Comparator.<Map.Entry<String, Object[]>>comparingInt(e -> (int) e.getValue()[0]).reversed()
+                        .thenComparing(Map.Entry::getKey))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+
+        assertThat(shardedMemberRepository.shardsFor(condition)).hasSize(3);
+        for (int page = 0; page * 15 < expected.size(); page++) {
+            List<MemberTeamDto> result = shardedMemberRepository.search(condition, PageRequest.of(page, 15, sort));
+            List<String> expectedPage = expected.subList(page * 15, Math.min(expected.size(), (page + 1) * 15));
+            assertThat(result).extracting("username").containsExactlyElementsOf(expectedPage);
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package study.querydsl.soak;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.domain.Member;
+import study.querydsl.domain.Team;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.MemberField;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.service.MemberUpdateService;
+
+import javax.persistence.EntityManager;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * 리포지토리 계층 soak/stress 테스트. 기본 test 태스크에서는 빠지고 ./gradlew soakTest 로 실행한다.
+ * 여러 쓰레드가 정해진 시간 동안 읽기(search, paging, projection)와 쓰기(save, changeTeam, bulk update)를 섞어서 실행하고
+ * 작업별 처리량/지연 히스토그램, 락 실패, JVM 데드락, 커넥션 풀 대기, 힙 증가를 출력한다.
+ *
+ * - 데이터 양/쓰레드/시간: -Dsoak.members=10000 -Dsoak.threads=16 -Dsoak.duration-seconds=60
+ * - 기준선(src/test/resources/soak-baselines)이 없으면 이번 결과로 기록하고 통과한다. (-Dsoak.baseline.update=true 로 재기록)
+ * - 기준선보다 p99 가 느려지거나 처리량이 줄면(허용 오차 -Dsoak.tolerance=0.5) 실패한다.
+ */
+@Tag("soak")
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:soak;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+        "member.seed.enabled=false",
+        "logging.level.org.hibernate.SQL=info",
+        "decorator.datasource.p6spy.enable-logging=false"
+})
+class RepositorySoakTest {
+
+    private static final int MEMBERS = Integer.getInteger("soak.members", 10_000);
+    private static final int THREADS = Integer.getInteger("soak.threads", 16);
+    private static final int DURATION_SECONDS = Integer.getInteger("soak.duration-seconds", 60);
+    private static final double TOLERANCE = Double.parseDouble(System.getProperty("soak.tolerance", "0.5"));
+    private static final boolean UPDATE = Boolean.getBoolean("soak.baseline.update");
+    private static final Path BASELINE_DIR = Paths.get("src/test/resources/soak-baselines");
+    private static final int TEAMS = 20;
+
+    enum Operation {
+        SEARCH(30), PAGE(20), PROJECTION(15), SAVE(15), CHANGE_TEAM(15), BULK_UPDATE(5);
+
+        final int weight;
+
+        Operation(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    @Autowired EntityManager em;
+    @Autowired PlatformTransactionManager txManager;
+    @Autowired DataSource dataSource;
+    @Autowired MemberRepository memberRepository;
+    @Autowired MemberJpaRepository memberJpaRepository;
+    @Autowired MemberUpdateService memberUpdateService;
+
+    final List<Long> teamIds = new ArrayList<>();
+    final List<Long> memberIds = new ArrayList<>();
+    final Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+    final AtomicLong lockFailures = new AtomicLong(); //DB 데드락/락 타임아웃
+    final AtomicLong conflicts = new AtomicLong(); //재시도 후에도 남은 낙관적 락 충돌
+    final Queue<Throwable> errors = new ConcurrentLinkedQueue<>();
+
+    @Test
+    public void mixedWorkloadStaysWithinBaseline() throws Exception {
+        seed();
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new ConcurrentHistogram(TimeUnit.MINUTES.toNanos(1), 3));
+        }
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        HikariDataSource pool = dataSource.unwrap(HikariDataSource.class);
+
+        System.gc();
+        long heapBefore = memory.getHeapMemoryUsage().getUsed();
+
+        AtomicInteger maxPoolWaiters = new AtomicInteger();
+        AtomicInteger deadlockedThreads = new AtomicInteger();
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        sampler.scheduleAtFixedRate(() -> {
+            maxPoolWaiters.accumulateAndGet(pool.getHikariPoolMXBean().getThreadsAwaitingConnection(), Math::max);
+            long[] deadlocked = threads.findDeadlockedThreads();
+            deadlockedThreads.accumulateAndGet(deadlocked == null ? 0 : deadlocked.length, Math::max);
+        }, 0, 100, TimeUnit.MILLISECONDS);
+
+        ExecutorService workers = Executors.newFixedThreadPool(THREADS);
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(DURATION_SECONDS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(workers.submit(() -> work(end)));
+            }
+            for (Future<?> future : futures) {
+                future.get(DURATION_SECONDS + 60L, TimeUnit.SECONDS);
+            }
+        } finally {
+            workers.shutdownNow();
+            sampler.shutdownNow();
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        System.gc();
+        long heapGrowthMb = (memory.getHeapMemoryUsage().getUsed() - heapBefore) / (1024 * 1024);
+
+        Properties result = report(elapsedSeconds);
+        System.out.printf("lockFailures=%d conflicts=%d errors=%d deadlockedThreads=%d maxPoolWaiters=%d heapGrowth=%dMB%n",
+                lockFailures.get(), conflicts.get(), errors.size(), deadlockedThreads.get(), maxPoolWaiters.get(), heapGrowthMb);
+        errors.stream().limit(5).forEach(Throwable::printStackTrace);
+
+        assertThat(deadlockedThreads.get()).as("JVM 데드락").isZero();
+        assertThat(errors).as("예상하지 못한 예외").isEmpty();
+        compareWithBaseline(result);
+    }
+
+    private void work(long end) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.nanoTime() < end) {
+            Operation operation = pick(random);
+            long started = System.nanoTime();
+            try {
+                run(operation, random);
+            } catch (PessimisticLockingFailureException e) {
+                lockFailures.incrementAndGet();
+            } catch (OptimisticLockingFailureException e) {
+                conflicts.incrementAndGet();
+            } catch (RuntimeException e) {
+                errors.add(e);
+            }
+            latencies.get(operation).recordValue(Math.min(System.nanoTime() - started, TimeUnit.MINUTES.toNanos(1)));
+        }
+    }
+
+    private void run(Operation operation, ThreadLocalRandom random) {
+        switch (operation) {
+            case SEARCH:
+                memberRepository.search(randomCondition(random));
+                break;
+            case PAGE:
+                memberRepository.search(randomCondition(random),
+                        PageRequest.of(random.nextInt(5), 20, Sort.by(Sort.Order.desc("age"), Sort.Order.asc("username"))));
+                break;
+            case PROJECTION:
+                memberRepository.search(randomCondition(random), List.of(MemberField.USERNAME, MemberField.AGE));
+                break;
+            case SAVE:
+                new TransactionTemplate(txManager).executeWithoutResult(status ->
+                        memberJpaRepository.save(new Member("soakNew" + random.nextInt(), random.nextInt(100),
+                                em.getReference(Team.class, teamIds.get(random.nextInt(teamIds.size()))))));
+                break;
+            case CHANGE_TEAM:
+                memberUpdateService.changeTeam(memberIds.get(random.nextInt(memberIds.size())),
+                        teamIds.get(random.nextInt(teamIds.size())));
+                break;
+            case BULK_UPDATE:
+                new TransactionTemplate(txManager).executeWithoutResult(status ->
+                        memberJpaRepository.bulkAgePlus(95 + random.nextInt(5))); //나이 많은 소수 범위만
+                break;
+        }
+    }
+
+    private Operation pick(ThreadLocalRandom random) {
+        int total = Arrays.stream(Operation.values()).mapToInt(o -> o.weight).sum();
+        int r = random.nextInt(total);
+        for (Operation operation : Operation.values()) {
+            r -= operation.weight;
+            if (r < 0) {
+                return operation;
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    private MemberSearchCondition randomCondition(ThreadLocalRandom random) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        if (random.nextInt(4) == 0) {
+            condition.setUsername("soak" + random.nextInt(MEMBERS));
+        }
+        if (random.nextBoolean()) {
+            condition.setTeamName("soakTeam" + random.nextInt(TEAMS));
+        }
+        int ageGoe = random.nextInt(100);
+        condition.setAgeGoe(ageGoe);
+        condition.setAgeLoe(ageGoe + 1 + random.nextInt(10)); //조건 없이 전체를 읽는 쿼리는 이 테스트의 대상이 아니다.
+        return condition;
+    }
+
+    private void seed() {
+        TransactionTemplate tx = new TransactionTemplate(txManager);
+        tx.executeWithoutResult(status -> {
+            for (int i = 0; i < TEAMS; i++) {
+                Team team = new Team("soakTeam" + i);
+                em.persist(team);
+                teamIds.add(team.getId());
+            }
+        });
+        for (int from = 0; from < MEMBERS; from += 1000) {
+            int chunkStart = from;
+            tx.executeWithoutResult(status -> {
+                for (int i = chunkStart; i < Math.min(chunkStart + 1000, MEMBERS); i++) {
+                    Member member = new Member("soak" + i, i % 100, em.getReference(Team.class, teamIds.get(i % TEAMS)));
+                    em.persist(member);
+                    memberIds.add(member.getId());
+                }
+            });
+        }
+    }
+
+    private Properties report(double elapsedSeconds) {
+        Properties result = new Properties();
+        System.out.printf("soak members=%d threads=%d duration=%.1fs%n", MEMBERS, THREADS, elapsedSeconds);
+        for (Map.Entry<Operation, Histogram> entry : latencies.entrySet()) {
+            String name = entry.getKey().name().toLowerCase();
+            Histogram histogram = entry.getValue();
+            double throughput = histogram.getTotalCount() / elapsedSeconds;
+            double p99Ms = histogram.getValueAtPercentile(99) / 1e6;
+            System.out.printf("%-12s count=%7d %8.1f ops/s p50=%7.2fms p95=%7.2fms p99=%7.2fms max=%7.2fms%n",
+                    name, histogram.getTotalCount(), throughput,
+                    histogram.getValueAtPercentile(50) / 1e6, histogram.getValueAtPercentile(95) / 1e6,
+                    p99Ms, histogram.getMaxValue() / 1e6);
+            result.setProperty(name + ".throughput", String.format(Locale.ROOT, "%.1f", throughput));
+            result.setProperty(name + ".p99Ms", String.format(Locale.ROOT, "%.2f", p99Ms));
+        }
+        return result;
+    }
+
+    //기준선은 데이터 양/쓰레드 수마다 따로 둔다.
+    private void compareWithBaseline(Properties result) throws IOException {
+        Path baseline = BASELINE_DIR.resolve("repository-soak-m" + MEMBERS + "-t" + THREADS + ".properties");
+        if (UPDATE || !Files.exists(baseline)) {
+            Files.createDirectories(BASELINE_DIR);
+            try (OutputStream out = Files.newOutputStream(baseline)) {
+                result.store(out, "RepositorySoakTest baseline (duration " + DURATION_SECONDS + "s)");
+            }
+            System.out.println("soak baseline recorded: " + baseline);
+            return;
+        }
+
+        Properties expected = new Properties();
+        try (InputStream in = Files.newInputStream(baseline)) {
+            expected.load(in);
+        }
+        List<String> regressions = new ArrayList<>();
+        for (String key : expected.stringPropertyNames()) {
+            double base = Double.parseDouble(expected.getProperty(key));
+            double actual = Double.parseDouble(result.getProperty(key, "0"));
+            if (key.endsWith(".p99Ms") && actual > base * (1 + TOLERANCE)) {
+                regressions.add(key + " " + base + " -> " + actual);
+            }
+            if (key.endsWith(".throughput") && actual < base * (1 - TOLERANCE)) {
+                regressions.add(key + " " + base + " -> " + actual);
+            }
+        }
+        assertThat(regressions).as("기준선 대비 회귀 (" + baseline + ")").isEmpty();
+    }
+}
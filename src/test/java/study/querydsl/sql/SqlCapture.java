@@ -0,0 +1,59 @@
+package study.querydsl.sql;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.JdbcEventListener;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * p6spy 리스너로 현재 스레드에서 실행된 SQL 을 모은다. (스케줄러 등 다른 스레드의 SQL 은 무시)
+ * 빈으로 등록하면 p6spy-spring-boot-starter 가 알아서 붙여 준다.
+ */
+public class SqlCapture extends JdbcEventListener {
+
+    private static final Pattern COMMENT = Pattern.compile("/\\*.*?\\*/", Pattern.DOTALL);
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+\\b");
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\?(?:\\s*,\\s*\\?)+\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    //pooled 시퀀스 호출은 풀 상태에 따라 나오기도 안 나오기도 해서 지문에서 뺀다.
+    private static final Pattern SEQUENCE_CALL = Pattern.compile("next value for|nextval");
+
+    private final ThreadLocal<List<String>> captured = new ThreadLocal<>();
+
+    public void start() {
+        captured.set(new ArrayList<>());
+    }
+
+    public List<String> stop() {
+        List<String> statements = captured.get();
+        captured.remove();
+        return statements == null ? List.of() : statements;
+    }
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        List<String> statements = captured.get();
+        if (statements == null) {
+            return;
+        }
+        String sql = normalize(statementInformation.getSql());
+        if (!SEQUENCE_CALL.matcher(sql).find()) {
+            statements.add(sql);
+        }
+    }
+
+    /**
+     * 주석(JPQL) 제거, 리터럴 -> ?, IN (?, ?, ?) -> IN (?...), 공백 정리, 소문자
+     */
+    static String normalize(String sql) {
+        String s = COMMENT.matcher(sql).replaceAll(" ");
+        s = STRING_LITERAL.matcher(s).replaceAll("?");
+        s = NUMBER_LITERAL.matcher(s).replaceAll("?");
+        s = IN_LIST.matcher(s).replaceAll("(?...)");
+        return WHITESPACE.matcher(s).replaceAll(" ").trim().toLowerCase();
+    }
+}
@@ -0,0 +1,176 @@
+package study.querydsl.sql;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.domain.Member;
+import study.querydsl.domain.Team;
+import study.querydsl.dto.MemberFacet;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.MemberField;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.TopNStrategy;
+import study.querydsl.view.MemberTeamViewMaintainer;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * 리포지토리 메서드가 만드는 SQL 지문(정규화된 SQL + 실행 횟수)을 골든 파일과 비교한다.
+ * join -> leftJoin, fetch join 추가 같은 변경이 SQL 을 바꾸면 여기서 깨진다.
+ * - 골든 파일이 없으면 이번 실행 결과로 새로 기록하고 통과한다. (처음 실행 / 새 메서드) 기록된 파일은 커밋한다.
+ * - 의도한 변경이면 -Dsql.fingerprint.update=true 로 다시 기록하고 diff 를 같이 리뷰한다.
+ */
+@SpringBootTest(properties = {
+        "member.view.enabled=true" //searchView 가 조인 검색으로 fallback 하지 않고 뷰를 읽도록
+})
+@Transactional
+class SqlFingerprintTest {
+
+    private static final Path GOLDEN_DIR = Paths.get("src/test/resources/sql-fingerprints");
+    private static final boolean UPDATE = Boolean.getBoolean("sql.fingerprint.update");
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        SqlCapture sqlCapture() {
+            return new SqlCapture();
+        }
+    }
+
+    @Autowired EntityManager em;
+    @Autowired SqlCapture sqlCapture;
+    @Autowired MemberJpaRepository memberJpaRepository;
+    @Autowired MemberRepository memberRepository;
+    @Autowired MemberTeamViewMaintainer viewMaintainer;
+
+    Team teamA;
+    Team teamB;
+    List<Long> memberIds = new ArrayList<>();
+
+    @BeforeEach
+    public void before() {
+        teamA = new Team("teamA");
+        teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        Member member1 = new Member("member1", 10, teamA);
+        Member member2 = new Member("member2", 40, teamA);
+        em.persist(member1);
+        em.persist(member2);
+        memberIds.add(member1.getId());
+        memberIds.add(member2.getId());
+        em.flush();
+        em.clear();
+        viewMaintainer.rebuild();
+    }
+
+    @Test
+    public void memberJpaRepository() {
+        verify("MemberJpaRepository.save", capture(() -> {
+            memberJpaRepository.save(new Member("fingerprint", 20));
+            em.flush();
+        }));
+        verify("MemberJpaRepository.findById", capture(() -> memberJpaRepository.findById(1L)));
+        verify("MemberJpaRepository.findAll", capture(() -> memberJpaRepository.findAll()));
+        verify("MemberJpaRepository.findAll_Querydsl", capture(() -> memberJpaRepository.findAll_Querydsl()));
+        verify("MemberJpaRepository.findByUsername", capture(() -> memberJpaRepository.findByUsername("member1")));
+        verify("MemberJpaRepository.findByUsername_Querydsl", capture(() -> memberJpaRepository.findByUsername_Querydsl("member1")));
+        verify("MemberJpaRepository.searchByBuilder", everyShape(memberJpaRepository::searchByBuilder));
+        verify("MemberJpaRepository.search", everyShape(memberJpaRepository::search));
+        verify("MemberJpaRepository.findAllByIds", capture(() -> memberJpaRepository.findAllByIds(withMissingId())));
+        verify("MemberJpaRepository.findTeamDtosByIds", capture(() -> memberJpaRepository.findTeamDtosByIds(withMissingId())));
+        verify("MemberJpaRepository.moveMembers", everyShape(c -> memberJpaRepository.moveMembers(teamA, teamB, c)));
+        verify("MemberJpaRepository.bulkAgePlus", capture(() -> memberJpaRepository.bulkAgePlus(20)));
+        verify("MemberJpaRepository.bulkDeleteByAgeGt", capture(() -> memberJpaRepository.bulkDeleteByAgeGt(100)));
+    }
+
+    @Test
+    public void memberRepositoryImpl() {
+        PageRequest page = PageRequest.of(1, 10, Sort.by(Sort.Order.desc("age"), Sort.Order.asc("username")));
+        Sort oldestFirst = Sort.by(Sort.Order.desc("age"));
+
+        verify("MemberRepositoryImpl.search", everyShape(memberRepository::search));
+        verify("MemberRepositoryImpl.search-pageable", everyShape(c -> memberRepository.search(c, page)));
+        verify("MemberRepositoryImpl.search-fields-username", everyShape(c -> memberRepository.search(c, List.of(MemberField.USERNAME))));
+        verify("MemberRepositoryImpl.search-fields-teamName", everyShape(c -> memberRepository.search(c, List.of(MemberField.ID, MemberField.TEAM_NAME))));
+        verify("MemberRepositoryImpl.searchCount", everyShape(memberRepository::searchCount));
+        verify("MemberRepositoryImpl.searchView", everyShape(memberRepository::searchView));
+        verify("MemberRepositoryImpl.topNPerTeam-window", everyShape(c -> memberRepository.topNPerTeam(c, 3, oldestFirst, TopNStrategy.WINDOW)));
+        verify("MemberRepositoryImpl.topNPerTeam-correlated", everyShape(c -> memberRepository.topNPerTeam(c, 3, oldestFirst, TopNStrategy.CORRELATED)));
+        verify("MemberRepositoryImpl.searchWithFacets", everyShape(c -> memberRepository.searchWithFacets(c, page, MemberFacet.values())));
+    }
+
+    private List<Long> withMissingId() {
+        List<Long> ids = new ArrayList<>(memberIds);
+        ids.add(-1L); //없는 id 도 같은 쿼리로 처리되어야 한다.
+        return ids;
+    }
+
+    //username, teamName, ageGoe, ageLoe 각각 있음/없음 -> 16가지
+    private String everyShape(Consumer<MemberSearchCondition> call) {
+        StringBuilder sb = new StringBuilder();
+        for (int shape = 0; shape < 16; shape++) {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            List<String> label = new ArrayList<>();
+            if ((shape & 1) != 0) { condition.setUsername("member1"); label.add("username"); }
+            if ((shape & 2) != 0) { condition.setTeamName("teamA"); label.add("teamName"); }
+            if ((shape & 4) != 0) { condition.setAgeGoe(10); label.add("ageGoe"); }
+            if ((shape & 8) != 0) { condition.setAgeLoe(40); label.add("ageLoe"); }
+
+            sb.append("## ").append(label.isEmpty() ? "none" : String.join("+", label)).append('\n');
+            sb.append(capture(() -> call.accept(condition)));
+        }
+        return sb.toString();
+    }
+
+    private String capture(Runnable call) {
+        em.clear(); //1차 캐시 때문에 SQL 이 생략되지 않도록
+        sqlCapture.start();
+        List<String> statements;
+        try {
+            call.run();
+        } finally {
+            statements = sqlCapture.stop();
+        }
+        StringBuilder sb = new StringBuilder("statements: " + statements.size() + "\n");
+        for (String sql : statements) {
+            sb.append(sql).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private void verify(String name, String actual) {
+        Path golden = GOLDEN_DIR.resolve(name + ".txt");
+        try {
+            if (UPDATE || !Files.exists(golden)) {
+                Files.createDirectories(GOLDEN_DIR);
+                Files.write(golden, actual.getBytes(StandardCharsets.UTF_8));
+                System.out.println("sql fingerprint recorded: " + golden);
+                return;
+            }
+            String expected = new String(Files.readAllBytes(golden), StandardCharsets.UTF_8);
+            assertThat(actual)
+                    .as("SQL 지문이 바뀌었습니다: %s (의도한 변경이면 -Dsql.fingerprint.update=true)", golden)
+                    .isEqualTo(expected);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package study.querydsl.view;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.domain.ChangeType;
+import study.querydsl.domain.Member;
+import study.querydsl.domain.Team;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.outbox.ChangeRecord;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.assertj.core.api.Assertions.*;
+import static study.querydsl.domain.QMember.member;
+
+@SpringBootTest(properties = {
+        "member.view.enabled=true" //rebuild 와 이벤트(onChanges)는 테스트에서 직접 호출한다.
+})
+@Transactional
+class MemberTeamViewTest {
+
+    @Autowired EntityManager em;
+    @Autowired MemberTeamViewMaintainer maintainer;
+    @Autowired MemberTeamViewConsistencyChecker checker;
+    @Autowired MemberRepository memberRepository;
+
+    Team viewA;
+    List<Long> memberIds = new ArrayList<>();
+
+    @BeforeEach
+    public void before() {
+        viewA = new Team("viewA");
+        Team viewB = new Team("viewB");
+        em.persist(viewA);
+        em.persist(viewB);
+        for (int i = 0; i < 50; i++) {
+            Member m = new Member("viewMember" + i, i, i % 2 == 0 ? viewA : viewB);
+            em.persist(m);
+            memberIds.add(m.getId());
+        }
+        em.flush();
+        em.clear();
+        maintainer.rebuild();
+    }
+
+    @Test
+    public void viewSearchMatchesJoinSearch() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("viewA");
+        condition.setAgeGoe(10);
+        condition.setAgeLoe(30);
+
+        assertThat(maintainer.isServing()).isTrue();
+        assertThat(memberRepository.searchView(condition))
+                .usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyInAnyOrderElementsOf(memberRepository.search(condition));
+    }
+
+    @Test
+    public void teamRenameIsPropagatedToViewRows() {
+        Team found = em.find(Team.class, viewA.getId());
+        found.setName("viewRenamed");
+        em.flush();
+
+        maintainer.onChanges(Collections.singletonList(
+                record("Team", viewA.getId(), ChangeType.UPDATE, Map.of("name", "viewRenamed"))));
+        em.clear();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("viewRenamed");
+        List<MemberTeamDto> result = memberRepository.searchView(condition);
+
+        assertThat(result).hasSize(25);
+        assertThat(result).extracting(MemberTeamDto::getTeamId).containsOnly(viewA.getId());
+    }
+
+    @Test
+    public void bulkChangeStopsServingUntilRebuild() throws Exception {
+        maintainer.onChanges(Collections.singletonList(
+                record("Member", null, ChangeType.BULK_UPDATE, Map.of("affected", 50))));
+
+        assertThat(maintainer.isServing()).isFalse();
+
+        //다른 쓰레드가 쓰기 락을 쥐고 있는 동안 재구축은 첫 청크에서 멈춘다 -> 그 사이 상태를 본다.
+        ReentrantLock lock = maintainer.getWriteLock();
+        CountDownLatch locked = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> servingDuringRebuild = executor.submit(() -> {
+                lock.lock();
+                try {
+                    locked.countDown();
+                    while (!lock.hasQueuedThreads()) {
+                        Thread.sleep(1);
+                    }
+                    return maintainer.isServing();
+                } finally {
+                    lock.unlock();
+                }
+            });
+            assertThat(locked.await(10, TimeUnit.SECONDS)).isTrue();
+
+            maintainer.rebuild();
+
+            assertThat(servingDuringRebuild.get(10, TimeUnit.SECONDS)).isFalse();
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(maintainer.isServing()).isTrue();
+    }
+
+    @Test
+    public void checkerFindsAndRepairsDrift() {
+        //아웃박스를 거치지 않은 변경 -> 뷰가 모르는 사이에 어긋난다.
+        new JPAQueryFactory(em)
+                .update(member)
+                .set(member.age, member.age.add(100))
+                .where(member.id.in(memberIds.subList(0, 5)))
+                .execute();
+        em.clear();
+
+        MemberTeamViewConsistencyChecker.Report report = checker.check();
+        assertThat(report.getStale()).containsAll(memberIds.subList(0, 5));
+        assertThat(report.getStale()).doesNotContainAnyElementsOf(memberIds.subList(5, 50));
+
+        checker.repair(report);
+        em.clear();
+
+        assertThat(checker.check().getStale()).doesNotContainAnyElementsOf(memberIds);
+    }
+
+    private ChangeRecord record(String aggregateType, Long aggregateId, ChangeType changeType, Map<String, Object> state) {
+        return new ChangeRecord(null, aggregateType, aggregateId, changeType, state, LocalDateTime.now());
+    }
+}